@@ -0,0 +1,73 @@
+package org.neo4j.changelog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a change log with many entries to a writer which throws the output away. Run with -prof gc to see the
+ * allocations per write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChangeLogBenchmark {
+
+    @Param({"1000", "50000"})
+    public int changes;
+
+    private ChangeLog changeLog;
+
+    @Setup
+    public void setup() {
+        List<String> categories = Arrays.asList("Kernel", "Cypher", "Bolt", "Packaging");
+        changeLog = new ChangeLog(Collections.emptyList(), "3.0", categories);
+        for (int i = 0; i < changes; i++) {
+            String label = i % 5 == 0 ? "other" : categories.get(i % categories.size());
+            changeLog.addToChangeLog(new ChangeRecord(i % 997, "Fixed issue " + i +
+                    " [\\#" + i + "](https://github.com/neo4j/neo4j/pull/" + i + ")", "3.0",
+                    Collections.singletonList(label)));
+        }
+    }
+
+    @Benchmark
+    public void writeTo() throws IOException {
+        changeLog.writeTo(new NullWriter());
+    }
+
+    private static class NullWriter extends Writer {
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+        }
+
+        @Override
+        public void write(String text) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
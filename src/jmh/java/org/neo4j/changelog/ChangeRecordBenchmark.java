@@ -0,0 +1,178 @@
+package org.neo4j.changelog;
+
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills a change log from every commit of a synthetic repository with long commit messages, and prints how much heap
+ * the change log keeps alive afterwards. The pinning variant makes changes the way they were made before
+ * {@link ChangeRecord}, holding on to their commit and through it the walk which parsed it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ChangeRecordBenchmark {
+
+    @Param({"20000"})
+    public int commits;
+
+    private File dir;
+    private Repository repo;
+    private final List<ObjectId> ids = new ArrayList<>();
+    private ChangeLog changeLog;
+    private List<Change> pinned;
+    private long heapBefore;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("changelog-benchmark").toFile();
+        repo = FileRepositoryBuilder.create(new File(dir, ".git"));
+        repo.create();
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            body.append("A long line of commit message body which no change log entry ever shows.\n");
+        }
+        try (ObjectInserter inserter = repo.newObjectInserter()) {
+            ObjectId tree = inserter.insert(Constants.OBJ_TREE, new byte[0]);
+            ObjectId parent = null;
+            for (int i = 0; i < commits; i++) {
+                PersonIdent ident = new PersonIdent("Test", "test@example.com", 1000L * (1000000000 + i), 0);
+                CommitBuilder builder = new CommitBuilder();
+                builder.setTreeId(tree);
+                if (parent != null) {
+                    builder.setParentId(parent);
+                }
+                builder.setAuthor(ident);
+                builder.setCommitter(ident);
+                builder.setMessage("Fix issue " + i + "\n\n" + body);
+                parent = inserter.insert(builder);
+                ids.add(parent);
+            }
+            inserter.flush();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        repo.close();
+        Files.walk(dir.toPath()).sorted(Collections.reverseOrder()).map(Path::toFile)
+             .forEach(File::delete);
+    }
+
+    @Setup(Level.Iteration)
+    public void measureHeapBefore() {
+        heapBefore = usedHeap();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printRetainedHeap() {
+        System.out.printf("%nChange log of %d commits retains %d KB%n", commits, (usedHeap() - heapBefore) / 1024);
+        changeLog = null;
+        pinned = null;
+    }
+
+    @Benchmark
+    public ChangeLog records() throws IOException {
+        changeLog = newChangeLog();
+        try (RevWalk walk = new RevWalk(repo)) {
+            for (ObjectId id : ids) {
+                RevCommit commit = walk.parseCommit(id);
+                changeLog.addToChangeLog(new ChangeRecord(commit.getCommitTime(), commit.getShortMessage(), "1.0",
+                        Collections.singletonList("Kernel"), "Kernel"));
+            }
+        }
+        return changeLog;
+    }
+
+    @Benchmark
+    public ChangeLog pinning() throws IOException {
+        changeLog = newChangeLog();
+        // Not closed, like the walks which parsed commits before
+        RevWalk walk = new RevWalk(repo);
+        // The change log used to keep the changes themselves until it was written
+        pinned = new ArrayList<>();
+        for (ObjectId id : ids) {
+            Change change = new PinningChange(walk.parseCommit(id));
+            pinned.add(change);
+            changeLog.addToChangeLog(change);
+        }
+        return changeLog;
+    }
+
+    @Nonnull
+    private static ChangeLog newChangeLog() {
+        return new ChangeLog(Collections.emptyList(), "1.0", Arrays.asList("Kernel", "Cypher"));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static class PinningChange implements Change {
+        private final RevCommit commit;
+
+        PinningChange(RevCommit commit) {
+            this.commit = commit;
+        }
+
+        @Override
+        public int getSortingNumber() {
+            return commit.getCommitTime();
+        }
+
+        @Nonnull
+        @Override
+        public List<String> getLabels() {
+            return Collections.singletonList("Kernel");
+        }
+
+        @Nonnull
+        @Override
+        public String getVersion() {
+            return "1.0";
+        }
+
+        @Override
+        public String toString() {
+            return commit.getShortMessage();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.neo4j.changelog.github;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares {@link ChangeLogScanner} with the regular expressions which it replaced. Run with -prof gc to compare
+ * allocations as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChangeLogScannerBenchmark {
+
+    // How bodies were parsed before the scanner
+    private static final Pattern CHANGELOG_PATTERN = Pattern.compile("^(cl|changelog)\\b[\\s:]*(.*)$",
+            Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
+    private static final Pattern METADATA_PATTERN = Pattern.compile("^\\[(.*?)\\]");
+    private static final Pattern VERSION_PATTERN = Pattern.compile("^\\s*\\d+\\.\\d+\\s*$");
+    private static final Pattern MESSAGE_PATTERN = Pattern.compile("^(?:\\[.*?\\])?\\s*(.*?)\\s*$", Pattern.DOTALL);
+
+    @Param({"short", "log"})
+    public String kind;
+
+    private String body;
+
+    @Setup
+    public void setup() {
+        switch (kind) {
+            case "short":
+                body = "Fixes a race when closing the store.\r\n\r\nchangelog: [3.0, kernel] Closing the store no " +
+                        "longer deadlocks\r\n";
+                break;
+            case "log":
+                // Bodies with pasted logs or stack traces, with the change log line at the end
+                StringBuilder builder = new StringBuilder("Fixes a failure on startup:\n\n```\n");
+                for (int i = 0; i < 400; i++) {
+                    builder.append("2016-05-12 10:15:").append(i % 60)
+                            .append(" ERROR [o.n.k.i.StoreLocker] Unable to obtain lock on store lock file\n")
+                            .append("\tat org.neo4j.kernel.internal.StoreLocker.checkLock(StoreLocker.java:")
+                            .append(i).append(")\n");
+                }
+                builder.append("```\n\ncl: [3.0, 2.3] Startup no longer fails when the store is locked\n");
+                body = builder.toString();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown kind: " + kind);
+        }
+    }
+
+    @Benchmark
+    public void scanner(Blackhole blackhole) {
+        ChangeLogScanner.Entry entry = ChangeLogScanner.scan(body);
+        blackhole.consume(entry.message);
+        blackhole.consume(entry.versions);
+        blackhole.consume(entry.labels);
+    }
+
+    @Benchmark
+    public void regex(Blackhole blackhole) {
+        Matcher matcher = CHANGELOG_PATTERN.matcher(body);
+        if (matcher.find()) {
+            String rest = matcher.group(2);
+            Matcher msgMatch = MESSAGE_PATTERN.matcher(rest);
+            if (msgMatch.find()) {
+                blackhole.consume(msgMatch.group(1));
+            }
+            Matcher metaMatch = METADATA_PATTERN.matcher(rest);
+            if (metaMatch.find()) {
+                for (String metaPart : metaMatch.group(1).split(",")) {
+                    blackhole.consume(VERSION_PATTERN.asPredicate().test(metaPart));
+                    blackhole.consume(metaPart.trim());
+                }
+            }
+        }
+    }
+}
@@ -3,23 +3,38 @@ package org.neo4j.changelog;
 
 import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.lib.Ref;
+import org.neo4j.changelog.render.MarkdownRenderer;
+import org.neo4j.changelog.render.Renderer;
+import org.neo4j.changelog.render.Renderers;
 
 import javax.annotation.Nonnull;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
-import java.util.function.Supplier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
+/**
+ * Changes can be added from several threads at once. The output does not depend on the order they were added in.
+ */
 public class ChangeLog {
 
-    private static final String VERSION_FMT = "\n## %s\n\n";
-    private static final String CATEGORY_FMT = "\n### %s\n\n";
-    private static final String CHANGE_FMT = "- %s\n";
-    private final Map<String, Map<String, List<Change>>> versions = new HashMap<>();
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Comparator<ChangeRecord> BY_TEXT = Comparator.comparing(ChangeRecord::toString);
+    private final ConcurrentMap<String, ConcurrentMap<String, Queue<ChangeRecord>>> versions =
+            new ConcurrentHashMap<>();
     private final ArrayList<String> tags = new ArrayList<>();
     private final LinkedHashSet<String> categories = new LinkedHashSet<>();
     private String catchAllSubHeader = "Misc";
@@ -39,18 +54,28 @@ public class ChangeLog {
         Collections.reverse(this.tags);
     }
 
+    /**
+     * The change is kept as a {@link ChangeRecord} under its category, so whatever it was made from can be collected.
+     * A category the record was made with is used as it is, if it is one of the categories of this change log.
+     */
     public void addToChangeLog(@Nonnull Change change) {
-        String version = change.getVersion();
-        String subheader = getCategoryFor(change);
+        ChangeRecord record = ChangeRecord.copyOf(change);
+        String version = record.getVersion();
+        String category = record.getCategory();
+        String subheader = category != null && categories.contains(category)
+                ? category
+                : getCategoryFor(record.getLabels());
 
-        Map<String, List<Change>> headers = defaultGet(versions, version, HashMap::new);
-        defaultGet(headers, subheader, ArrayList::new).add(change);
+        versions.computeIfAbsent(version, v -> new ConcurrentHashMap<>())
+                .computeIfAbsent(subheader, c -> new ConcurrentLinkedQueue<>())
+                .add(record);
     }
 
+    /**
+     * @return the first category which one of the labels names, ignoring case, or the catch all category if none does
+     */
     @Nonnull
-    private String getCategoryFor(@Nonnull Change change) {
-        List<String> labels = change.getLabels();
-
+    public String getCategoryFor(@Nonnull List<String> labels) {
         for (String category: categories) {
             if (labels.stream().anyMatch(s -> s.equalsIgnoreCase(category))) {
                 return category;
@@ -60,66 +85,177 @@ public class ChangeLog {
     }
 
     public void write(@Nonnull Path path) throws IOException {
-        try (BufferedWriter w = Files.newBufferedWriter(path)) {
-            writeTo(w);
+        write(Collections.singletonMap(Renderers.MARKDOWN, path));
+    }
+
+    /**
+     * Sorts the changes once, and then writes each format to its own file, at the same time.
+     *
+     * @param outputs paths by format, see {@link Renderers#FORMATS}
+     */
+    public void write(@Nonnull Map<String, Path> outputs) throws IOException {
+        Map<String, Map<String, ChangeRecord[]>> model = model();
+        if (outputs.size() == 1) {
+            Map.Entry<String, Path> output = outputs.entrySet().iterator().next();
+            write(model, output.getKey(), output.getValue());
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(outputs.size());
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (Map.Entry<String, Path> output: outputs.entrySet()) {
+                results.add(executor.submit(() -> {
+                    write(model, output.getKey(), output.getValue());
+                    return null;
+                }));
+            }
+            for (Future<Void> result: results) {
+                try {
+                    result.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes the changes between the existing change log's head and its kept sections, which are left as they were.
+     * The file is replaced in one step, so it is never seen half written.
+     */
+    public void writeIncrementally(@Nonnull Path path, @Nonnull ExistingChangeLog existing) throws IOException {
+        Path dir = Objects.requireNonNull(path.toAbsolutePath().getParent());
+        Path temp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            try (Writer w = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(temp),
+                    StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                w.write(existing.getHead());
+                writeTo(w);
+                w.write(existing.getKept());
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void write(@Nonnull Map<String, Map<String, ChangeRecord[]>> model, @Nonnull String format,
+                              @Nonnull Path path) throws IOException {
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.UTF_8),
+                BUFFER_SIZE)) {
+            render(model, Renderers.create(format, w));
         }
     }
 
     void writeTo(@Nonnull Writer w) throws IOException {
-        for (String version: tags) {
-            Map<String, List<Change>> catMap = defaultGet(versions, version, HashMap::new);
+        render(model(), new MarkdownRenderer(w));
+    }
 
-            if (containsNoChanges(catMap)) {
-                // Don't output versions with no changes
-                continue;
+    private static void render(@Nonnull Map<String, Map<String, ChangeRecord[]>> model, @Nonnull Renderer renderer)
+            throws IOException {
+        renderer.beginChangeLog();
+        for (Map.Entry<String, Map<String, ChangeRecord[]>> version: model.entrySet()) {
+            renderer.beginVersion(version.getKey());
+            for (Map.Entry<String, ChangeRecord[]> category: version.getValue().entrySet()) {
+                renderer.beginCategory(category.getKey());
+                for (ChangeRecord change: category.getValue()) {
+                    renderer.change(change);
+                }
+                renderer.endCategory();
             }
+            renderer.endVersion();
+        }
+        renderer.endChangeLog();
+    }
+
+    /**
+     * @return the sorted changes of each category of each version, in the order they are to be written
+     */
+    @Nonnull
+    private Map<String, Map<String, ChangeRecord[]>> model() {
+        // The catch all category goes last, unless it has been given a place
+        List<String> order = new ArrayList<>(categories);
+        if (!categories.contains(catchAllSubHeader)) {
+            order.add(catchAllSubHeader);
+        }
 
-            w.write(String.format(VERSION_FMT, version));
+        Map<String, Map<String, ChangeRecord[]>> model = new LinkedHashMap<>();
+        for (String version: tags) {
+            Map<String, Queue<ChangeRecord>> catMap = versions.get(version);
 
-            if (!categories.contains(catchAllSubHeader)) {
-                categories.add(catchAllSubHeader);
+            if (catMap == null || containsNoChanges(catMap)) {
+                // Don't output versions with no changes
+                continue;
             }
 
-            for (String category: categories) {
-                List<Change> changes = defaultGet(catMap, category, ArrayList::new);
+            Map<String, ChangeRecord[]> sections = new LinkedHashMap<>();
+            for (String category: order) {
+                Queue<ChangeRecord> added = catMap.get(category);
 
-                if (changes.isEmpty()) {
+                if (added == null || added.isEmpty()) {
                     // Don't output categories with no changes
                     continue;
                 }
 
-                w.write(String.format(CATEGORY_FMT, category));
+                sections.put(category, sorted(added));
+            }
+            model.put(version, sections);
+        }
+        return model;
+    }
 
-                changes.sort((c1, c2) -> {
-                    if (c1.getSortingNumber() == c2.getSortingNumber()) {
-                        return 0;
-                    } else if (c1.getSortingNumber() < c2.getSortingNumber()) {
-                        return -1;
-                    } else {
-                        return 1;
-                    }
-                });
+    /**
+     * Sorts by number, and changes with the same number by text, so the order they were added in doesn't matter. The
+     * numbers are packed with their index into longs, which sort without calling back into the changes.
+     *
+     * The String.format based writer kept tied changes in the order they were added instead. PR numbers are unique in a
+     * repository and each sub project has its own category, so only configured commits with the same commit time can
+     * tie. The main project added those from a parallel stream, so their order was never fixed. Those of a sub project
+     * are now ordered by text, rather than as they are listed in the config.
+     */
+    @Nonnull
+    private static ChangeRecord[] sorted(@Nonnull Collection<ChangeRecord> added) {
+        ChangeRecord[] changes = added.toArray(new ChangeRecord[added.size()]);
+        long[] keys = new long[changes.length];
+        for (int i = 0; i < changes.length; i++) {
+            keys[i] = ((long) changes[i].getSortingNumber() << 32) | i;
+        }
+        Arrays.sort(keys);
 
-                for (Change change: changes) {
-                    w.write(String.format(CHANGE_FMT, change.toString()));
-                }
+        ChangeRecord[] result = new ChangeRecord[changes.length];
+        for (int i = 0; i < keys.length; i++) {
+            result[i] = changes[(int) keys[i]];
+        }
+
+        int start = 0;
+        while (start < keys.length) {
+            int end = start + 1;
+            while (end < keys.length && (keys[end] >> 32) == (keys[start] >> 32)) {
+                end++;
+            }
+            if (end - start > 1) {
+                Arrays.sort(result, start, end, BY_TEXT);
             }
+            start = end;
         }
+        return result;
     }
 
-    private static boolean containsNoChanges(@Nonnull final Map<String, List<Change>> catMap) {
-        for (String category: catMap.keySet()) {
-            if (!catMap.getOrDefault(category, Collections.emptyList()).isEmpty()) {
+    private static boolean containsNoChanges(@Nonnull final Map<String, Queue<ChangeRecord>> catMap) {
+        for (Queue<ChangeRecord> changes: catMap.values()) {
+            if (!changes.isEmpty()) {
                 return false;
             }
         }
         return true;
     }
-
-    private <T> T defaultGet(@Nonnull Map<String, T> map, @Nonnull String key, @Nonnull Supplier<T> supplier) {
-        if (!map.containsKey(key)) {
-            map.put(key, supplier.get());
-        }
-        return map.get(key);
-    }
 }
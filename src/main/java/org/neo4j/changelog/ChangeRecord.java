@@ -0,0 +1,106 @@
+package org.neo4j.changelog;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An immutable change which only holds what ends up in the change log. Changes are kept until the change log is
+ * written, so they should not hold on to the commits or pull requests they were made from.
+ *
+ * The factories resolve the category when the change is made, so that the change log only has to file it.
+ */
+public final class ChangeRecord implements Change {
+    private final int sortingNumber;
+    private final String text;
+    private final String version;
+    private final List<String> labels;
+    private final String category;
+
+    public ChangeRecord(int sortingNumber, @Nonnull String text, @Nonnull String version,
+                        @Nonnull List<String> labels) {
+        this(sortingNumber, text, version, labels, null);
+    }
+
+    /**
+     * @param category where the change goes in the change log, see {@link ChangeLog#getCategoryFor}, or null to have
+     *                 the change log resolve it from the labels
+     */
+    public ChangeRecord(int sortingNumber, @Nonnull String text, @Nonnull String version,
+                        @Nonnull List<String> labels, @Nullable String category) {
+        this.sortingNumber = sortingNumber;
+        this.text = text;
+        this.version = version;
+        this.category = category;
+        switch (labels.size()) {
+            case 0:
+                this.labels = Collections.emptyList();
+                break;
+            case 1:
+                this.labels = Collections.singletonList(labels.get(0));
+                break;
+            default:
+                this.labels = Collections.unmodifiableList(new ArrayList<>(labels));
+        }
+    }
+
+    /**
+     * @return the change itself if it is a record already, or else a record with the same contents
+     */
+    @Nonnull
+    public static ChangeRecord copyOf(@Nonnull Change change) {
+        if (change instanceof ChangeRecord) {
+            return (ChangeRecord) change;
+        }
+        return new ChangeRecord(change.getSortingNumber(), change.toString(), change.getVersion(),
+                change.getLabels());
+    }
+
+    @Override
+    public int getSortingNumber() {
+        return sortingNumber;
+    }
+
+    @Nonnull
+    @Override
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    @Nonnull
+    @Override
+    public String getVersion() {
+        return version;
+    }
+
+    @Nullable
+    public String getCategory() {
+        return category;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ChangeRecord that = (ChangeRecord) o;
+        return sortingNumber == that.sortingNumber && text.equals(that.text) && version.equals(that.version)
+                && labels.equals(that.labels) && Objects.equals(category, that.category);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sortingNumber, text, version, labels, category);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,79 @@
+package org.neo4j.changelog;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A Markdown change log written by an earlier run, split at its newest version. That version and everything below it
+ * are kept as they are, and only what is newer is generated again.
+ */
+public class ExistingChangeLog {
+    private static final Pattern VERSION_HEADER = Pattern.compile("^## (.*)$", Pattern.MULTILINE);
+
+    private final String head;
+    private final String newestVersion;
+    private final String kept;
+
+    private ExistingChangeLog(@Nonnull String head, @Nonnull String newestVersion, @Nonnull String kept) {
+        this.head = head;
+        this.newestVersion = newestVersion;
+        this.kept = kept;
+    }
+
+    /**
+     * @param nextHeader the header of unreleased changes, which is always generated again
+     * @return null if there is no such file, or it has no version yet
+     */
+    @Nullable
+    public static ExistingChangeLog read(@Nonnull Path path, @Nonnull String nextHeader) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        return parse(new String(Files.readAllBytes(path), StandardCharsets.UTF_8), nextHeader);
+    }
+
+    @Nullable
+    static ExistingChangeLog parse(@Nonnull String text, @Nonnull String nextHeader) {
+        Matcher m = VERSION_HEADER.matcher(text);
+        int firstSection = -1;
+        while (m.find()) {
+            // Sections start with the blank line before their header
+            int start = m.start() > 0 && text.charAt(m.start() - 1) == '\n' ? m.start() - 1 : m.start();
+            if (firstSection < 0) {
+                firstSection = start;
+            }
+            String version = m.group(1).trim();
+            if (!version.equals(nextHeader)) {
+                return new ExistingChangeLog(text.substring(0, firstSection), version, text.substring(start));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return whatever came before the first section, such as a title which was added by hand
+     */
+    @Nonnull
+    public String getHead() {
+        return head;
+    }
+
+    @Nonnull
+    public String getNewestVersion() {
+        return newestVersion;
+    }
+
+    /**
+     * @return the section of the newest version, and all sections after it
+     */
+    @Nonnull
+    public String getKept() {
+        return kept;
+    }
+}
@@ -1,6 +1,7 @@
 package org.neo4j.changelog;
 
 import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.impl.Arguments;
 import net.sourceforge.argparse4j.inf.ArgumentParser;
 import net.sourceforge.argparse4j.inf.ArgumentParserException;
 import net.sourceforge.argparse4j.inf.Namespace;
@@ -9,19 +10,29 @@ import org.eclipse.jgit.lib.Ref;
 import org.neo4j.changelog.config.ConfigReader;
 import org.neo4j.changelog.config.GitCommitConfig;
 import org.neo4j.changelog.config.GithubConfig;
-import org.neo4j.changelog.config.GithubLabelsConfig;
 import org.neo4j.changelog.config.ProjectConfig;
 import org.neo4j.changelog.git.GitHelper;
 import org.neo4j.changelog.github.GitHubHelper;
 import org.neo4j.changelog.github.PullRequest;
+import org.neo4j.changelog.github.RateLimiter;
+import org.neo4j.changelog.github.RevalidationCache;
+import org.neo4j.changelog.render.Renderers;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -35,13 +46,83 @@ public class Main {
         this.config = config;
     }
 
+    /**
+     * Pull requests are only needed once the tags are known, so crawling GitHub for all projects starts right away and
+     * runs alongside the git analysis.
+     */
     private void generateChangelog() throws IOException, GitAPIException {
-        GitHelper gitHelper = new GitHelper(config);
+        if (config.getIncremental() && config.getOutputs().size() > 1) {
+            // Only Markdown can be continued, anything else would be left stale
+            throw new IllegalArgumentException(String.format(
+                    "--incremental can only update the Markdown change log, but [%s] also has: %s",
+                    ProjectConfig.OUTPUTS, config.getOutputs().keySet().stream()
+                                                 .filter(format -> !format.equals(Renderers.MARKDOWN))
+                                                 .collect(Collectors.joining(", "))));
+        }
+        // Sub projects share the cache and the rate limit of the main project
+        RevalidationCache cache = RevalidationCache.from(config.getGithubConfig());
+        RateLimiter limiter = new RateLimiter(config.getGithubConfig().getMaxRequests());
+        ExecutorService network = Executors.newFixedThreadPool(1 + config.getSubProjects().size());
+        try {
+            Future<List<PullRequest>> pullRequests = fetchPullRequests(config.getGithubConfig(), cache, limiter,
+                    network);
+            List<Future<List<PullRequest>>> subProjectPullRequests = new ArrayList<>();
+            for (ProjectConfig subProjectConfig: config.getSubProjects()) {
+                subProjectPullRequests.add(fetchPullRequests(subProjectConfig.getGithubConfig(), cache, limiter,
+                        network));
+            }
+
+            ExistingChangeLog existing = config.getIncremental() ? readExistingChangeLog() : null;
+            try (GitHelper gitHelper = new GitHelper(config, existing == null ? null : existing.getNewestVersion())) {
+                generateChangelog(gitHelper, pullRequests, subProjectPullRequests, existing);
+                printStatistics("", gitHelper);
+            }
+            if (cache != null) {
+                System.out.printf("GitHub cache: %d hits, %d revalidated, %d misses\n", cache.getHitCount(),
+                        cache.getRevalidatedCount(), cache.getMissCount());
+            }
+            System.out.printf("GitHub requests retried: %d\n", limiter.getRetryCount());
+        } finally {
+            network.shutdownNow();
+        }
+    }
 
+    /**
+     * @return the change log to continue from, or null if it should be generated in full
+     */
+    @Nullable
+    private ExistingChangeLog readExistingChangeLog() throws IOException {
+        ExistingChangeLog existing = ExistingChangeLog.read(new File(config.getOutputPath()).toPath(),
+                config.getNextHeader());
+        if (existing == null) {
+            System.out.printf("No versions in %s yet, generating the full change log\n", config.getOutputPath());
+            return null;
+        }
+        if (!GitHelper.isInConfiguredRange(config.getGitConfig(), existing.getNewestVersion())) {
+            System.out.printf("Version %s in %s is not in the configured range, generating the full change log\n",
+                    existing.getNewestVersion(), config.getOutputPath());
+            return null;
+        }
+        System.out.printf("Generating changes after version %s in %s\n", existing.getNewestVersion(),
+                config.getOutputPath());
+        return existing;
+    }
+
+    /**
+     * @param existing if not null, only versions newer than its newest version are generated, and spliced into it
+     */
+    private void generateChangelog(@Nonnull GitHelper gitHelper, @Nonnull Future<List<PullRequest>> prsFuture,
+                                   @Nonnull List<Future<List<PullRequest>>> subProjectPrsFutures,
+                                   @Nullable ExistingChangeLog existing)
+            throws IOException, GitAPIException {
         System.out.println("Checking for tags...");
         List<Ref> versionTags = gitHelper.getVersionTagsForChangelog();
+        if (existing != null) {
+            // The range starts at the newest version, which is kept as it is
+            versionTags.removeIf(t -> existing.getNewestVersion().equals(Util.getTagName(t)));
+        }
         // Pre-sort the tags
-        versionTags.sort(Util.getGitRefSorter(gitHelper));
+        versionTags.sort(Util.getGitRefSorter(gitHelper, versionTags));
 
         System.out.println("Version tags:");
         versionTags.forEach(t -> System.out.println(Util.getTagName(t)));
@@ -62,9 +143,8 @@ public class Main {
             System.out.println("Skipping git commits since none were specified");
         } else {
             System.out.println("Adding specified commits to changelog");
-            commits.stream()
-                   .filter(c -> gitHelper.isAncestorOfToRef(c.getSha()) &&
-                           !gitHelper.isAncestorOfFromRef(c.getSha()))
+            commits.parallelStream()
+                   .filter(c -> gitHelper.isInRange(c.getSha()))
                    .filter(c -> {
                        if (c.getVersionFilter().isEmpty() ||
                                config.getGitConfig().getCommitsConfig().getVersionPrefix().isEmpty()) {
@@ -77,28 +157,35 @@ public class Main {
                        }
                        return false;
                    })
-                   .map(c -> gitHelper.convertToChange(c, versionTags, config.getNextHeader()))
+                   .map(c -> gitHelper.convertToChange(c, versionTags, config.getNextHeader(),
+                           changeLog.getCategoryFor(Collections.singletonList(c.getCategory()))))
                    .forEach(changeLog::addToChangeLog);
         }
 
         // Add project pull requests to changelog
-        List<PullRequest> pullRequests = getPullRequests(config.getGithubConfig());
+        List<PullRequest> pullRequests = await(prsFuture);
 
         if (!pullRequests.isEmpty()) {
             System.out.println("Adding relevant PRs to changelog");
-            pullRequests.stream()
-                        .filter(pr -> gitHelper.isAncestorOfToRef(pr.getCommit()) &&
-                                !gitHelper.isAncestorOfFromRef(pr.getCommit()))
+            pullRequests.parallelStream()
+                        .filter(pr -> gitHelper.isInRange(pr.getCommit()))
                         .map(pr -> GitHubHelper.convertToChange(pr,
-                                gitHelper.getFirstVersionOf(pr.getCommit(), versionTags, config.getNextHeader())))
+                                gitHelper.getFirstVersionOf(pr.getCommit(), versionTags, config.getNextHeader()),
+                                changeLog.getCategoryFor(pr.getLabelFilter())))
                         .forEach(changeLog::addToChangeLog);
         }
 
         // Add sub project pull requests to changelog
-        addSubprojectChanges(versionTags, changeLog);
+        addSubprojectChanges(versionTags, changeLog, subProjectPrsFutures, existing);
 
         // Write
-        changeLog.write(new File(config.getOutputPath()).toPath());
+        if (existing != null) {
+            changeLog.writeIncrementally(new File(config.getOutputPath()).toPath(), existing);
+        } else {
+            Map<String, Path> outputs = new LinkedHashMap<>();
+            config.getOutputs().forEach((format, path) -> outputs.put(format, new File(path).toPath()));
+            changeLog.write(outputs);
+        }
     }
 
     @Nullable
@@ -112,71 +199,156 @@ public class Main {
         return m.group(1);
     }
 
-    private void addSubprojectChanges(List<Ref> orgVersionTags, ChangeLog changeLog) throws IOException, GitAPIException {
-        for (ProjectConfig subProjectConfig: config.getSubProjects()) {
-            System.out.println("Subproject: " + subProjectConfig.getName());
-            GitHelper gitHelper = new GitHelper(subProjectConfig);
+    /**
+     * Sub projects are independent of each other, so they are processed concurrently, and each adds its changes as
+     * soon as it is done.
+     */
+    private void addSubprojectChanges(List<Ref> orgVersionTags, ChangeLog changeLog,
+                                      List<Future<List<PullRequest>>> prsFutures, @Nullable ExistingChangeLog existing)
+            throws IOException, GitAPIException {
+        List<ProjectConfig> subProjects = config.getSubProjects();
+        if (subProjects.isEmpty()) {
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(subProjects.size(), Runtime.getRuntime().availableProcessors()));
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (int i = 0; i < subProjects.size(); i++) {
+                ProjectConfig subProjectConfig = subProjects.get(i);
+                Future<List<PullRequest>> prsFuture = prsFutures.get(i);
+                results.add(executor.submit(() -> {
+                    getSubprojectChanges(subProjectConfig, orgVersionTags, prsFuture, existing)
+                            .forEach(changeLog::addToChangeLog);
+                    return null;
+                }));
+            }
+            for (Future<Void> result: results) {
+                await(result);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-            System.out.println("Checking for tags...");
-            List<Ref> subTags = gitHelper.getVersionTagsForChangelog();
-            // Sort them
+    /**
+     * @param existing if not null, the sub project range starts at its last tag of the newest kept version
+     */
+    @Nonnull
+    private List<Change> getSubprojectChanges(@Nonnull ProjectConfig subProjectConfig, List<Ref> orgVersionTags,
+                                              @Nonnull Future<List<PullRequest>> prsFuture,
+                                              @Nullable ExistingChangeLog existing)
+            throws IOException, GitAPIException {
+        final String prefix = String.format("[%s] ", subProjectConfig.getName());
+        System.out.println(prefix + "Processing subproject");
+        String from = null;
+        if (existing != null) {
             final Pattern tagPattern = subProjectConfig.getGitConfig().getTagPattern();
-            subTags.sort(Util.getGitRefSorter(gitHelper, (tag1, tag2) -> {
-                // Let mother version break the tie
-                for (Ref motherTag: orgVersionTags) {
-                    final String motherVersion = Util.getTagName(motherTag);
-                    if (motherVersion.equals(firstGroup(tagPattern, Util.getTagName(tag1)))) {
-                        return -1;
-                    } else if (motherVersion.equals(firstGroup(tagPattern, Util.getTagName(tag2)))) {
-                        return 1;
-                    }
+            from = GitHelper.getNewestVersionTag(subProjectConfig.getGitConfig(),
+                    tag -> existing.getNewestVersion().equals(firstGroup(tagPattern, tag)));
+            if (from == null) {
+                System.out.printf("%sNo tag of version %s in range, looking at the full range\n", prefix,
+                        existing.getNewestVersion());
+            } else {
+                System.out.printf("%sLooking at changes after tag %s\n", prefix, from);
+            }
+        }
+        try (GitHelper gitHelper = new GitHelper(subProjectConfig, from)) {
+            List<Change> changes = getSubprojectChanges(subProjectConfig, gitHelper, orgVersionTags, prsFuture, prefix);
+            printStatistics(prefix, gitHelper);
+            return changes;
+        }
+    }
+
+    @Nonnull
+    private List<Change> getSubprojectChanges(@Nonnull ProjectConfig subProjectConfig, @Nonnull GitHelper gitHelper,
+                                              List<Ref> orgVersionTags,
+                                              @Nonnull Future<List<PullRequest>> prsFuture, @Nonnull String prefix)
+            throws IOException, GitAPIException {
+        List<Change> changes = new ArrayList<>();
+        System.out.println(prefix + "Checking for tags...");
+        List<Ref> subTags = gitHelper.getVersionTagsForChangelog();
+        // Sort them
+        final Pattern tagPattern = subProjectConfig.getGitConfig().getTagPattern();
+        subTags.sort(Util.getGitRefSorter(gitHelper, subTags, (tag1, tag2) -> {
+            // Let mother version break the tie
+            for (Ref motherTag: orgVersionTags) {
+                final String motherVersion = Util.getTagName(motherTag);
+                if (motherVersion.equals(firstGroup(tagPattern, Util.getTagName(tag1)))) {
+                    return -1;
+                } else if (motherVersion.equals(firstGroup(tagPattern, Util.getTagName(tag2)))) {
+                    return 1;
                 }
-                // Could not find a matching mother tag, order can not be determined
-                return 0;
-            }));
+            }
+            // Could not find a matching mother tag, order can not be determined
+            return 0;
+        }));
 
-            System.out.println("Sub tags:");
-            subTags.forEach(t -> System.out.println(Util.getTagName(t)));
+        System.out.println(prefix + "Sub tags:");
+        subTags.forEach(t -> System.out.println(prefix + Util.getTagName(t)));
 
-            // GIT
-            List<GitCommitConfig> commits = subProjectConfig.getGitConfig().getCommitsConfig().getCommits();
+        // GIT
+        List<GitCommitConfig> commits = subProjectConfig.getGitConfig().getCommitsConfig().getCommits();
 
-            if (commits.isEmpty()) {
-                System.out.println("Skipping git commits since none were specified");
-            } else {
-                System.out.println("Adding specified commits to changelog");
-                commits.stream()
-                       .filter(c -> gitHelper.isAncestorOfToRef(c.getSha()) &&
-                               !gitHelper.isAncestorOfFromRef(c.getSha()))
-                       .filter(c -> {
-                           if (c.getVersionFilter().isEmpty() ||
-                                   subProjectConfig.getGitConfig().getCommitsConfig().getVersionPrefix().isEmpty()) {
+        if (commits.isEmpty()) {
+            System.out.println(prefix + "Skipping git commits since none were specified");
+        } else {
+            System.out.println(prefix + "Adding specified commits to changelog");
+            commits.stream()
+                   .filter(c -> gitHelper.isInRange(c.getSha()))
+                   .filter(c -> {
+                       if (c.getVersionFilter().isEmpty() ||
+                               subProjectConfig.getGitConfig().getCommitsConfig().getVersionPrefix().isEmpty()) {
+                           return true;
+                       }
+                       for (String version : c.getVersionFilter()) {
+                           if (subProjectConfig.getGitConfig().getCommitsConfig().getVersionPrefix().startsWith(version)) {
                                return true;
                            }
-                           for (String version : c.getVersionFilter()) {
-                               if (subProjectConfig.getGitConfig().getCommitsConfig().getVersionPrefix().startsWith(version)) {
-                                   return true;
-                               }
-                           }
-                           return false;
-                       })
-                       .map(c -> subChange(c, subProjectConfig, gitHelper, subTags, orgVersionTags))
-                       .filter(c -> c != null)
-                       .forEach(changeLog::addToChangeLog);
-            }
+                       }
+                       return false;
+                   })
+                   .map(c -> subChange(c, subProjectConfig, gitHelper, subTags, orgVersionTags))
+                   .filter(c -> c != null)
+                   .forEach(changes::add);
+        }
 
-            // GITHUB
-            List<PullRequest> pullRequests = getPullRequests(subProjectConfig.getGithubConfig());
+        // GITHUB
+        List<PullRequest> pullRequests = await(prsFuture);
 
-            if (!pullRequests.isEmpty()) {
-                System.out.println("Adding relevant PRs to changelog");
-                pullRequests.stream()
-                            .filter(pr -> gitHelper.isAncestorOfToRef(pr.getCommit()) &&
-                                    !gitHelper.isAncestorOfFromRef(pr.getCommit()))
-                            .map(pr -> subChange(pr, subProjectConfig, gitHelper, subTags, orgVersionTags))
-                            .filter(pr -> pr != null)
-                            .forEach(changeLog::addToChangeLog);
+        if (!pullRequests.isEmpty()) {
+            System.out.println(prefix + "Adding relevant PRs to changelog");
+            pullRequests.stream()
+                        .filter(pr -> gitHelper.isInRange(pr.getCommit()))
+                        .map(pr -> subChange(pr, subProjectConfig, gitHelper, subTags, orgVersionTags))
+                        .filter(pr -> pr != null)
+                        .forEach(changes::add);
+        }
+        return changes;
+    }
+
+    /**
+     * Waits for the result, and throws what the task threw.
+     */
+    private static <T> T await(@Nonnull Future<T> future) throws IOException, GitAPIException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof GitAPIException) {
+                throw (GitAPIException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
             }
+            throw new RuntimeException(cause);
         }
     }
 
@@ -227,36 +399,31 @@ public class Main {
             return null;
         }
 
-        return new Change() {
-            @Override
-            public int getSortingNumber() {
-                return pr.getNumber();
-            }
-
-            @Nonnull
-            @Override
-            public List<String> getLabels() {
-                return Collections.singletonList(subProjectConfig.getName());
-            }
+        return new ChangeRecord(pr.getNumber(), pr.getChangeText(), motherVersion,
+                Collections.singletonList(subProjectConfig.getName()), subProjectConfig.getName());
+    }
 
-            @Nonnull
-            @Override
-            public String getVersion() {
-                return motherVersion;
-            }
+    private static void printStatistics(@Nonnull String prefix, @Nonnull GitHelper gitHelper) {
+        System.out.printf("%sRef resolution cache: %d hits, %d misses\n", prefix, gitHelper.getResolveCacheHits(),
+                gitHelper.getResolveCacheMisses());
+        if (gitHelper.hasVersionCache()) {
+            System.out.printf("%sVersion cache: %d commits labeled\n", prefix, gitHelper.getVersionCacheLabeled());
+        }
+    }
 
-            @Override
-            public String toString() {
-                return pr.getChangeText();
-            }
-        };
+    @Nonnull
+    private static Future<List<PullRequest>> fetchPullRequests(@Nonnull GithubConfig config,
+                                                               @Nullable RevalidationCache cache,
+                                                               @Nonnull RateLimiter limiter,
+                                                               @Nonnull ExecutorService executor) {
+        return CompletableFuture.supplyAsync(() -> getPullRequests(config, cache, limiter), executor);
     }
 
-    private static List<PullRequest> getPullRequests(@Nonnull GithubConfig config) {
+    private static List<PullRequest> getPullRequests(@Nonnull GithubConfig config,
+                                                     @Nullable RevalidationCache cache,
+                                                     @Nonnull RateLimiter limiter) {
         String user = config.getUser();
         String repo = config.getRepo();
-        String token = config.getToken();
-        GithubLabelsConfig labels = config.getLabels();
 
         if (user.isEmpty() || repo.isEmpty()) {
             System.out.println("Skipping pull requests since no github user/repo defined.");
@@ -265,11 +432,11 @@ public class Main {
 
         System.out.printf("Fetching pull requests from github.com/%s/%s\n", user,
                 repo);
-        GitHubHelper gitHubHelper = new GitHubHelper(token, user, repo, config.getIncludeAuthor(), labels);
+        GitHubHelper gitHubHelper = new GitHubHelper(config, cache, limiter);
 
         List<PullRequest> pullRequests = gitHubHelper.getChangeLogPullRequests();
 
-        System.out.printf("%d pull requests fetched.\n", pullRequests.size());
+        System.out.printf("%d pull requests fetched from github.com/%s/%s\n", pullRequests.size(), user, repo);
 
         return pullRequests;
     }
@@ -285,6 +452,14 @@ public class Main {
               .help("Path to config file")
               .setDefault("changelog.toml");
 
+        parser.addArgument("--incremental")
+              .help("Keep the versions already in the output file, and only generate newer ones")
+              .action(Arguments.storeTrue());
+
+        parser.addArgument("--rebuild-store")
+              .help("Ignore stored pull requests, and fetch them all from GitHub again")
+              .action(Arguments.storeTrue());
+
         try {
             return parser.parseArgs(args);
         } catch (ArgumentParserException e) {
@@ -309,6 +484,15 @@ public class Main {
             System.exit(1);
         }
 
+        config.setIncremental(ns.getBoolean("incremental"));
+
+        if (ns.getBoolean("rebuild_store")) {
+            config.getGithubConfig().setRebuildStore(true);
+            for (ProjectConfig subConfig : config.getSubProjects()) {
+                subConfig.getGithubConfig().setRebuildStore(true);
+            }
+        }
+
         try {
             Main main = new Main(config);
             main.generateChangelog();
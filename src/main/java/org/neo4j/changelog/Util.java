@@ -4,10 +4,12 @@ import org.eclipse.jgit.lib.Ref;
 import org.neo4j.changelog.git.GitHelper;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.function.BiFunction;
 
 /**
@@ -47,28 +49,69 @@ public class Util {
     private static final BiFunction<Ref, Ref, Integer> doesNotMatter = (r1, r2) -> 0;
 
     @Nonnull
-    public static Comparator<Ref> getGitRefSorter(GitHelper gitHelper) {
-        return getGitRefSorter(gitHelper, doesNotMatter);
+    public static Comparator<Ref> getGitRefSorter(@Nonnull GitHelper gitHelper, @Nonnull List<Ref> refs) {
+        return getGitRefSorter(gitHelper, refs, doesNotMatter);
     }
 
+    /**
+     * Sorts the given refs topologically, in a single pass over them. The comparator can only compare refs from
+     * the given list, and throws an IllegalArgumentException for any other ref.
+     *
+     * @param tieBreaker orders refs which point to the same commit
+     */
     @Nonnull
     public static Comparator<Ref> getGitRefSorter(@Nonnull GitHelper gitHelper,
+                                                  @Nonnull List<Ref> refs,
                                                   @Nonnull BiFunction<Ref, Ref, Integer> tieBreaker) {
-        return (ref1, ref2) -> {
-            try {
-                if (gitHelper.getCommitFromString(ref1.getName()).equals(gitHelper.getCommitFromString(ref2.getName()))) {
-                    return tieBreaker.apply(ref1, ref2);
-                } else if (gitHelper.isAncestorOf(ref1.getName(), ref2.getName())) {
-                    return -1;
-                } else {
-                    return 1;
+        try {
+            Map<String, Integer> ranks = gitHelper.getTopologicalRanks(refs, tieBreaker::apply);
+            return Comparator.comparingInt(ref -> {
+                Integer rank = ranks.get(ref.getName());
+                if (rank == null) {
+                    throw new IllegalArgumentException("Ref was not in the list to sort: " + ref.getName());
                 }
-            } catch (IOException | NullPointerException e) {
-                throw new RuntimeException(e);
+                return rank;
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Compares semantic versions. Any prefix before the version is ignored, so "v1.2" and "neo4j-1.2" are
+     * versions too. Other strings come last, in alphabetical order.
+     */
+    @Nonnull
+    public static Comparator<String> getVersionComparator() {
+        return (v1, v2) -> {
+            SemanticVersion sv1 = asLenientSemanticVersion(v1);
+            SemanticVersion sv2 = asLenientSemanticVersion(v2);
+            if (sv1 != null && sv2 != null) {
+                int comp = sv1.compareTo(sv2);
+                return comp != 0 ? comp : v1.compareTo(v2);
+            } else if (sv1 != null) {
+                return -1;
+            } else if (sv2 != null) {
+                return 1;
             }
+            return v1.compareTo(v2);
         };
     }
 
+    @Nullable
+    private static SemanticVersion asLenientSemanticVersion(@Nonnull String version) {
+        for (int i = 0; i < version.length(); i++) {
+            if (Character.isDigit(version.charAt(i))) {
+                try {
+                    return asSemanticVersion(version.substring(i));
+                } catch (IllegalArgumentException e) {
+                    // Try from the next digit instead
+                }
+            }
+        }
+        return null;
+    }
+
     @Nonnull
     private static String[] splitSemanticVersion(@Nonnull String semanticVersion) {
         int metaDataStart = !semanticVersion.contains("+") ? semanticVersion.length() : semanticVersion.indexOf("+");
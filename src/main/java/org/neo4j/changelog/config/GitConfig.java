@@ -14,12 +14,15 @@ public class GitConfig {
     public static final String FROM = "from";
     public static final String DIR = "dir";
     public static final String COMMITS_FILE = "commits_file";
-    private static final List<String> VALID_KEYS = Arrays.asList(DIR, FROM, TO, COMMITS_FILE, TAG_PATTERN);
+    public static final String VERSION_CACHE = "version_cache";
+    private static final List<String> VALID_KEYS =
+            Arrays.asList(DIR, FROM, TO, COMMITS_FILE, TAG_PATTERN, VERSION_CACHE);
     private String cloneDir = "./";
     private String from = "";
     private String to = "HEAD";
     private Pattern tagPattern = Pattern.compile(DEFAULT_TAG_PATTERN);
     private String commitsFile = "";
+    private String versionCache = "";
     private GitCommitsConfig commitsConfig = new GitCommitsConfig();
 
     public static GitConfig from(@Nonnull Map<String, Object> map) {
@@ -31,6 +34,7 @@ public class GitConfig {
         gitConfig.from = map.getOrDefault(FROM, gitConfig.from).toString();
         gitConfig.to = map.getOrDefault(TO, gitConfig.to).toString();
         gitConfig.commitsFile = map.getOrDefault(COMMITS_FILE, gitConfig.commitsFile).toString();
+        gitConfig.versionCache = map.getOrDefault(VERSION_CACHE, gitConfig.versionCache).toString();
         gitConfig.tagPattern = Pattern.compile(map.getOrDefault(TAG_PATTERN, DEFAULT_TAG_PATTERN).toString());
 
         return gitConfig;
@@ -69,6 +73,14 @@ public class GitConfig {
         return commitsFile;
     }
 
+    /**
+     * @return directory where the version of each commit is kept between runs, or empty if it isn't
+     */
+    @Nonnull
+    public String getVersionCache() {
+        return versionCache.replaceFirst("^~", System.getProperty("user.home"));
+    }
+
     public void setCommitsConfig(@Nonnull GitCommitsConfig commitsConfig) {
         this.commitsConfig = commitsConfig;
     }
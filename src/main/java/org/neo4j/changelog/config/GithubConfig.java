@@ -12,11 +12,28 @@ public class GithubConfig {
     public static final String TOKEN = "token";
     public static final String LABELS = "labels";
     private static final String INCLUDE_AUTHOR = "include_author";
-    private static final List<Object> VALID_KEYS = Arrays.asList(USER, REPO, TOKEN, INCLUDE_AUTHOR, LABELS);
+    private static final String MAX_REQUESTS = "max_requests";
+    private static final String BULK_FETCH = "bulk_fetch";
+    private static final String STORE_DIR = "store_dir";
+    private static final String CACHE_DIR = "cache_dir";
+    private static final String CACHE_SIZE = "cache_size";
+    private static final String BACKEND = "backend";
+    public static final String BACKEND_REST = "rest";
+    public static final String BACKEND_GRAPHQL = "graphql";
+    public static final int DEFAULT_MAX_REQUESTS = 8;
+    private static final List<Object> VALID_KEYS = Arrays.asList(USER, REPO, TOKEN, INCLUDE_AUTHOR, MAX_REQUESTS,
+            BULK_FETCH, STORE_DIR, CACHE_DIR, CACHE_SIZE, BACKEND, LABELS);
     private String user = "";
     private String repo = "";
     private String token = "";
     private boolean includeAuthor = false;
+    private int maxRequests = DEFAULT_MAX_REQUESTS;
+    private boolean bulkFetch = false;
+    private String storeDir = "";
+    private boolean rebuildStore = false;
+    private String cacheDir = ".githubcache";
+    private int cacheSize = 10;
+    private String backend = BACKEND_REST;
     private GithubLabelsConfig labels = new GithubLabelsConfig();
 
     public GithubConfig() {
@@ -29,6 +46,13 @@ public class GithubConfig {
         githubConfig.user = (map.getOrDefault(USER, "").toString());
         githubConfig.repo = (map.getOrDefault(REPO, "").toString());
         githubConfig.token = (map.getOrDefault(TOKEN, "").toString());
+        githubConfig.storeDir = (map.getOrDefault(STORE_DIR, "").toString());
+        githubConfig.cacheDir = (map.getOrDefault(CACHE_DIR, githubConfig.cacheDir).toString());
+        githubConfig.backend = (map.getOrDefault(BACKEND, githubConfig.backend).toString());
+        if (!BACKEND_REST.equals(githubConfig.backend) && !BACKEND_GRAPHQL.equals(githubConfig.backend)) {
+            throw new IllegalArgumentException(String.format("'%s' in [github] should be '%s' or '%s'", BACKEND,
+                    BACKEND_REST, BACKEND_GRAPHQL));
+        }
 
         try {
             githubConfig.includeAuthor = (boolean) map.getOrDefault(INCLUDE_AUTHOR, githubConfig.includeAuthor);
@@ -37,6 +61,35 @@ public class GithubConfig {
                     String.format("'%s' in [github] should be a boolean", INCLUDE_AUTHOR), e);
         }
 
+        try {
+            githubConfig.maxRequests = ((Number) map.getOrDefault(MAX_REQUESTS, githubConfig.maxRequests)).intValue();
+        } catch (ClassCastException e) {
+            throw new IllegalArgumentException(
+                    String.format("'%s' in [github] should be an integer", MAX_REQUESTS), e);
+        }
+        if (githubConfig.maxRequests < 1) {
+            throw new IllegalArgumentException(
+                    String.format("'%s' in [github] should be at least 1", MAX_REQUESTS));
+        }
+
+        try {
+            githubConfig.bulkFetch = (boolean) map.getOrDefault(BULK_FETCH, githubConfig.bulkFetch);
+        } catch (ClassCastException e) {
+            throw new IllegalArgumentException(
+                    String.format("'%s' in [github] should be a boolean", BULK_FETCH), e);
+        }
+
+        try {
+            githubConfig.cacheSize = ((Number) map.getOrDefault(CACHE_SIZE, githubConfig.cacheSize)).intValue();
+        } catch (ClassCastException e) {
+            throw new IllegalArgumentException(
+                    String.format("'%s' in [github] should be an integer", CACHE_SIZE), e);
+        }
+        if (githubConfig.cacheSize < 0) {
+            throw new IllegalArgumentException(
+                    String.format("'%s' in [github] can not be negative", CACHE_SIZE));
+        }
+
         if (map.containsKey(LABELS)) {
             try {
                 Map labelMap = (Map<String, Object>) map.get(LABELS);
@@ -86,6 +139,59 @@ public class GithubConfig {
         return includeAuthor;
     }
 
+    /**
+     * @return the maximum number of requests to GitHub which may be in flight at once
+     */
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    /**
+     * @return true if pull requests should be listed a page at a time, instead of being fetched one by one
+     */
+    public boolean getBulkFetch() {
+        return bulkFetch;
+    }
+
+    /**
+     * @return directory where pull requests are kept between runs, or empty if they are fetched anew every run
+     */
+    @Nonnull
+    public String getStoreDir() {
+        return storeDir;
+    }
+
+    public boolean getRebuildStore() {
+        return rebuildStore;
+    }
+
+    public void setRebuildStore(boolean rebuildStore) {
+        this.rebuildStore = rebuildStore;
+    }
+
+    /**
+     * @return directory where responses from GitHub are cached
+     */
+    @Nonnull
+    public String getCacheDir() {
+        return cacheDir;
+    }
+
+    /**
+     * @return maximum size of the cache in megabytes, where 0 means responses are not cached
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * @return {@link #BACKEND_REST} or {@link #BACKEND_GRAPHQL}
+     */
+    @Nonnull
+    public String getBackend() {
+        return backend;
+    }
+
     public boolean hasUserAndRepo() {
         return !user.isEmpty() && !repo.isEmpty();
     }
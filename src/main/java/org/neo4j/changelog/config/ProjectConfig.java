@@ -1,29 +1,35 @@
 package org.neo4j.changelog.config;
 
+import org.neo4j.changelog.render.Renderers;
+
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class ProjectConfig {
     public static final String NAME = "name";
     public static final String OUTPUT = "output";
+    public static final String OUTPUTS = "outputs";
     public static final String NEXTHEADER = "nextheader";
     public static final String GIT = "git";
     public static final String GITHUB = "github";
     public static final String CATEGORIES = "categories";
     public static final String SUBPROJECTS = "subprojects";
     private static final List<String> VALID_KEYS =
-            Arrays.asList(NAME, OUTPUT, NEXTHEADER, GIT, GITHUB, CATEGORIES, SUBPROJECTS);
+            Arrays.asList(NAME, OUTPUT, OUTPUTS, NEXTHEADER, GIT, GITHUB, CATEGORIES, SUBPROJECTS);
     private static final String MISSING_SECTION_MSG = "Missing [%s] section";
     private static final String EXPECTED_SECTION_MSG = "Expected '%s' to be a section but found something else";
     private final List<ProjectConfig> subProjects = new ArrayList<>();
     private final List<String> categories = new ArrayList<>();
+    private final Map<String, String> outputs = new LinkedHashMap<>();
 
     private String name = "";
     private String outputPath = "";
     private String nextHeader = "";
+    private boolean incremental = false;
     private GitConfig gitConfig = new GitConfig();
     private GithubConfig githubConfig = new GithubConfig();
 
@@ -48,6 +54,23 @@ public class ProjectConfig {
         config.outputPath = map.getOrDefault(OUTPUT, "CHANGELOG.md").toString();
         config.nextHeader = map.getOrDefault(NEXTHEADER, "Unreleased").toString();
 
+        config.outputs.put(Renderers.MARKDOWN, config.outputPath);
+        if (map.containsKey(OUTPUTS)) {
+            Object outputsSection = map.get(OUTPUTS);
+            if (!(outputsSection instanceof Map)) {
+                throw new IllegalArgumentException(String.format(EXPECTED_SECTION_MSG, OUTPUTS));
+            }
+            for (Map.Entry<?, ?> output: ((Map<?, ?>) outputsSection).entrySet()) {
+                String format = output.getKey().toString();
+                if (!Renderers.FORMATS.contains(format)) {
+                    throw new IllegalArgumentException(String.format("Unknown format '%s' in [%s], expected one of: %s",
+                            format, OUTPUTS, String.join(", ", Renderers.FORMATS)));
+                }
+                config.outputs.put(format, output.getValue().toString());
+            }
+            config.outputPath = config.outputs.get(Renderers.MARKDOWN);
+        }
+
         if (map.containsKey(GITHUB)) {
             Map<String, Object> githubSection;
             try {
@@ -115,10 +138,28 @@ public class ProjectConfig {
         return outputPath;
     }
 
+    /**
+     * @return the path to write each format to, by format
+     */
+    public Map<String, String> getOutputs() {
+        return outputs;
+    }
+
     public String getNextHeader() {
         return nextHeader;
     }
 
+    /**
+     * @return whether only versions newer than those in the existing change log should be generated
+     */
+    public boolean getIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
     public GitConfig getGitConfig() {
         return gitConfig;
     }
@@ -0,0 +1,358 @@
+package org.neo4j.changelog.git;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Read-only view of git's commit-graph file (objects/info/commit-graph), memory mapped so that parents, commit times
+ * and generation numbers can be read without inflating commit objects.
+ *
+ * The file is written by `git commit-graph write`, or by gc, and only covers the commits which existed at that time.
+ * Callers must fall back to parsing objects for commits which are not in it. Split commit-graph chains are not
+ * supported. See Documentation/technical/commit-graph-format.txt in git.
+ */
+class CommitGraphFile {
+    private static final int SIGNATURE = 0x43475048; // CGPH
+    private static final int CHUNK_OID_FANOUT = 0x4f494446; // OIDF
+    private static final int CHUNK_OID_LOOKUP = 0x4f49444c; // OIDL
+    private static final int CHUNK_COMMIT_DATA = 0x43444154; // CDAT
+    private static final int CHUNK_EXTRA_EDGES = 0x45444745; // EDGE
+    private static final int HASH_LENGTH = Constants.OBJECT_ID_LENGTH;
+    private static final int COMMIT_DATA_WIDTH = HASH_LENGTH + 16;
+    private static final int PARENT_NONE = 0x70000000;
+    private static final int PARENT_EXTRA_EDGES = 0x80000000;
+    private static final int LAST_EDGE = 0x80000000;
+    private static final int[] NO_PARENTS = new int[0];
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int fanoutOffset;
+    private final int lookupOffset;
+    private final int dataOffset;
+    private final int edgesOffset;
+    private final boolean hasGenerations;
+
+    private CommitGraphFile(@Nonnull ByteBuffer buffer, int fanoutOffset, int lookupOffset, int dataOffset,
+                            int edgesOffset) {
+        this.buffer = buffer;
+        this.fanoutOffset = fanoutOffset;
+        this.lookupOffset = lookupOffset;
+        this.dataOffset = dataOffset;
+        this.edgesOffset = edgesOffset;
+        this.size = buffer.getInt(fanoutOffset + 255 * 4);
+        // Files written by old versions of git have every generation set to zero
+        this.hasGenerations = size > 0 && getGeneration(0) != 0;
+    }
+
+    /**
+     * @return the commit-graph of the repository, or null if it has none, or if it can not be trusted
+     */
+    @Nullable
+    static CommitGraphFile open(@Nonnull Repository repo) {
+        File objects = new File(repo.getDirectory(), "objects");
+        File file = new File(objects, "info/commit-graph");
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            // Grafts, replacements and shallow clones change the parents which git reports, not what the file says
+            if (new File(repo.getDirectory(), "shallow").exists()
+                    || new File(repo.getDirectory(), "info/grafts").exists()
+                    || !repo.getRefDatabase().getRefs(Constants.R_REFS + "replace/").isEmpty()) {
+                return null;
+            }
+            return open(file);
+        } catch (IOException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            System.err.printf("\nWarning: Ignoring commit-graph file %s: %s\n", file, e.getMessage());
+            return null;
+        }
+    }
+
+    @Nonnull
+    static CommitGraphFile open(@Nonnull File file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("File is too large");
+            }
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.limit() < 8 || buffer.getInt(0) != SIGNATURE) {
+            throw new IllegalArgumentException("Not a commit-graph file");
+        }
+        if (buffer.get(4) != 1) {
+            throw new IllegalArgumentException("Unsupported version " + buffer.get(4));
+        }
+        if (buffer.get(5) != 1) {
+            throw new IllegalArgumentException("Unsupported hash version " + buffer.get(5));
+        }
+        if (buffer.get(7) != 0) {
+            throw new IllegalArgumentException("Split commit-graphs are not supported");
+        }
+
+        int chunkCount = buffer.get(6) & 0xff;
+        int fanout = -1;
+        int lookup = -1;
+        int data = -1;
+        int edges = -1;
+        for (int i = 0; i < chunkCount; i++) {
+            int entry = 8 + 12 * i;
+            int id = buffer.getInt(entry);
+            long offset = buffer.getLong(entry + 4);
+            if (offset < 0 || offset >= buffer.limit()) {
+                throw new IllegalArgumentException("Chunk offset out of bounds");
+            }
+            switch (id) {
+                case CHUNK_OID_FANOUT:
+                    fanout = (int) offset;
+                    break;
+                case CHUNK_OID_LOOKUP:
+                    lookup = (int) offset;
+                    break;
+                case CHUNK_COMMIT_DATA:
+                    data = (int) offset;
+                    break;
+                case CHUNK_EXTRA_EDGES:
+                    edges = (int) offset;
+                    break;
+                default:
+                    // Bloom filters and newer generation data are not needed
+            }
+        }
+        if (fanout < 0 || lookup < 0 || data < 0) {
+            throw new IllegalArgumentException("Missing required chunk");
+        }
+
+        int size = buffer.getInt(fanout + 255 * 4);
+        if (size < 0 || (long) lookup + (long) size * HASH_LENGTH > buffer.limit()
+                || (long) data + (long) size * COMMIT_DATA_WIDTH > buffer.limit()) {
+            throw new IllegalArgumentException("Truncated file");
+        }
+        return new CommitGraphFile(buffer, fanout, lookup, data, edges);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return false if the generation numbers are all zero, and can't be used to cut walks
+     */
+    boolean hasGenerations() {
+        return hasGenerations;
+    }
+
+    /**
+     * @return the position of the commit in the file, or -1 if it is not in it
+     */
+    int findPosition(@Nonnull AnyObjectId commit) {
+        int first = commit.getFirstByte();
+        int low = first == 0 ? 0 : buffer.getInt(fanoutOffset + (first - 1) * 4);
+        int high = buffer.getInt(fanoutOffset + first * 4);
+        int[] words = new int[5];
+        commit.copyRawTo(words, 0);
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(words, mid);
+            if (cmp == 0) {
+                return mid;
+            } else if (cmp < 0) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return -1;
+    }
+
+    private int compare(@Nonnull int[] words, int position) {
+        int offset = lookupOffset + position * HASH_LENGTH;
+        for (int i = 0; i < words.length; i++) {
+            int cmp = Integer.compareUnsigned(words[i], buffer.getInt(offset + 4 * i));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    @Nonnull
+    ObjectId getObjectId(int position) {
+        int offset = lookupOffset + position * HASH_LENGTH;
+        int[] words = new int[5];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = buffer.getInt(offset + 4 * i);
+        }
+        return ObjectId.fromRaw(words);
+    }
+
+    /**
+     * @return the positions of the parents of the commit at the given position
+     */
+    @Nonnull
+    int[] getParents(int position) {
+        int offset = dataOffset + position * COMMIT_DATA_WIDTH + HASH_LENGTH;
+        int first = buffer.getInt(offset);
+        if (first == PARENT_NONE) {
+            return NO_PARENTS;
+        }
+        int second = buffer.getInt(offset + 4);
+        if (second == PARENT_NONE) {
+            return new int[]{first};
+        }
+        if ((second & PARENT_EXTRA_EDGES) == 0) {
+            return new int[]{first, second};
+        }
+        if (edgesOffset < 0) {
+            throw new IllegalStateException("Octopus merge without extra edges in commit-graph");
+        }
+
+        // Octopus merge, the rest of the parents are listed in the extra edges
+        int[] parents = new int[8];
+        parents[0] = first;
+        int count = 1;
+        int edge = edgesOffset + 4 * (second & ~PARENT_EXTRA_EDGES);
+        int value;
+        do {
+            value = buffer.getInt(edge);
+            edge += 4;
+            if (count == parents.length) {
+                parents = Arrays.copyOf(parents, 2 * count);
+            }
+            parents[count++] = value & ~LAST_EDGE;
+        } while ((value & LAST_EDGE) == 0);
+        return Arrays.copyOf(parents, count);
+    }
+
+    /**
+     * @return the topological level of the commit: 1 for root commits, otherwise one more than its highest parent.
+     * Zero if the file was written without generation numbers.
+     */
+    int getGeneration(int position) {
+        int offset = dataOffset + position * COMMIT_DATA_WIDTH + HASH_LENGTH + 8;
+        return buffer.getInt(offset) >>> 2;
+    }
+
+    /**
+     * @return the commit time, in seconds since the epoch
+     */
+    long getCommitTime(int position) {
+        int offset = dataOffset + position * COMMIT_DATA_WIDTH + HASH_LENGTH + 8;
+        long high = buffer.getInt(offset) & 0x3L;
+        long low = buffer.getInt(offset + 4) & 0xffffffffL;
+        return high << 32 | low;
+    }
+
+    /**
+     * Check if base is an ancestor of tip (or the same commit), both given as positions. The walk never descends
+     * below the generation of base, since no commit down there can reach it.
+     */
+    boolean isAncestor(int base, int tip) {
+        if (base == tip) {
+            return true;
+        }
+        int baseGeneration = hasGenerations ? getGeneration(base) : 0;
+        if (hasGenerations && getGeneration(tip) <= baseGeneration) {
+            return false;
+        }
+
+        BitSet visited = new BitSet();
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = tip;
+        visited.set(tip);
+        while (top > 0) {
+            int commit = stack[--top];
+            for (int parent : getParents(commit)) {
+                if (parent == base) {
+                    return true;
+                }
+                if (visited.get(parent) || (hasGenerations && getGeneration(parent) <= baseGeneration)) {
+                    continue;
+                }
+                visited.set(parent);
+                if (top == stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * top);
+                }
+                stack[top++] = parent;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the oldest commit, by commit time, which tip can reach but base can not, like the last line of
+     * `git log base..tip`. Commits are visited by descending generation, so a commit is known to be reachable from
+     * base or not once it is visited, and the walk stops as soon as only commits which base reaches are left. Needs
+     * generation numbers.
+     *
+     * @return the position of the commit, or -1 if base reaches tip
+     */
+    int getOldestInRange(int base, int tip) {
+        if (!hasGenerations) {
+            throw new IllegalStateException("The commit-graph has no generation numbers");
+        }
+        BitSet queued = new BitSet();
+        BitSet uninteresting = new BitSet();
+        // Highest generation first, packed with the position so that nothing calls back into the file
+        PriorityQueue<Long> queue = new PriorityQueue<>(Comparator.reverseOrder());
+        queue.add(key(tip));
+        queued.set(tip);
+        queue.add(key(base));
+        queued.set(base);
+        uninteresting.set(base);
+        int interestingQueued = base == tip ? 0 : 1;
+
+        int oldest = -1;
+        long oldestTime = Long.MAX_VALUE;
+        while (interestingQueued > 0) {
+            int commit = (int) (long) queue.poll();
+            boolean reachedFromBase = uninteresting.get(commit);
+            if (!reachedFromBase) {
+                interestingQueued--;
+                long time = getCommitTime(commit);
+                // Of equally old commits, the one found last is taken
+                if (time <= oldestTime) {
+                    oldest = commit;
+                    oldestTime = time;
+                }
+            }
+            for (int parent : getParents(commit)) {
+                if (!queued.get(parent)) {
+                    queued.set(parent);
+                    queue.add(key(parent));
+                    if (reachedFromBase) {
+                        uninteresting.set(parent);
+                    } else {
+                        interestingQueued++;
+                    }
+                } else if (reachedFromBase && !uninteresting.get(parent)) {
+                    uninteresting.set(parent);
+                    interestingQueued--;
+                }
+            }
+        }
+        return oldest;
+    }
+
+    private long key(int position) {
+        return (long) getGeneration(position) << 32 | position;
+    }
+}
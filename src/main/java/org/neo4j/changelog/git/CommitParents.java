@@ -0,0 +1,58 @@
+package org.neo4j.changelog.git;
+
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+
+/**
+ * Looks up the parents of commits in the cheapest place which has them: a reachability index which is already
+ * built, then the commit-graph, and only then the commit object itself.
+ */
+class CommitParents {
+    private static final ObjectId[] NO_PARENTS = new ObjectId[0];
+
+    private final RevWalk walk;
+    @Nullable
+    private final CommitGraphFile commitGraph;
+    @Nullable
+    private final ReachabilityIndex index;
+
+    CommitParents(@Nonnull RevWalk walk, @Nullable CommitGraphFile commitGraph, @Nullable ReachabilityIndex index) {
+        this.walk = walk;
+        this.commitGraph = commitGraph;
+        this.index = index;
+    }
+
+    @Nonnull
+    ObjectId[] get(@Nonnull AnyObjectId commit) throws IOException {
+        ObjectId[] parents = index == null ? null : index.getParents(commit);
+        if (parents != null) {
+            return parents;
+        }
+
+        int position = commitGraph == null ? -1 : commitGraph.findPosition(commit);
+        if (position >= 0) {
+            int[] positions = commitGraph.getParents(position);
+            parents = new ObjectId[positions.length];
+            for (int i = 0; i < positions.length; i++) {
+                parents[i] = commitGraph.getObjectId(positions[i]);
+            }
+            return parents;
+        }
+
+        RevCommit revCommit = walk.lookupCommit(commit);
+        try {
+            walk.parseHeaders(revCommit);
+        } catch (MissingObjectException e) {
+            // Shallow clone, treat it as a root
+            return NO_PARENTS;
+        }
+        return revCommit.getParents();
+    }
+}
@@ -2,16 +2,22 @@ package org.neo4j.changelog.git;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.RepositoryNotFoundException;
 import org.eclipse.jgit.errors.StopWalkException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.revwalk.filter.RevFilter;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.neo4j.changelog.Change;
+import org.neo4j.changelog.ChangeRecord;
 import org.neo4j.changelog.Util;
 import org.neo4j.changelog.config.GitCommitConfig;
 import org.neo4j.changelog.config.GitConfig;
@@ -22,33 +28,77 @@ import javax.annotation.Nullable;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 
 /**
  * Miscellaneous utility functions related to Git specific things.
+ *
+ * Safe to use from several threads at once. Close it to release the repository.
  */
-public class GitHelper {
+public class GitHelper implements AutoCloseable {
     private static final String GITHUB_COMMIT_LINK = "https://github.com/%s/%s/commit/%s";
     static Pattern VERSION_TAG_PATTERN = Pattern.compile("^v?[\\d\\.]+");
     private final Git git;
     private final Repository repo;
     private final GitConfig config;
+    private static final ObjectId UNRESOLVABLE = ObjectId.zeroId();
     private final String fromRef;
     private final String toRef;
+    private final ObjectId fromCommit;
+    private final ObjectId toCommit;
     private final ProjectConfig globalConfig;
+    private final RevWalkPool walks;
+    @Nullable
+    private final CommitGraphFile commitGraph;
+    private final Map<String, ObjectId> resolvedCommits = new ConcurrentHashMap<>();
+    private final LongAdder resolveCacheHits = new LongAdder();
+    private final LongAdder resolveCacheMisses = new LongAdder();
+    private final LongAdder versionCacheLabeled = new LongAdder();
+    private volatile ReachabilityIndex reachabilityIndex = null;
+    private volatile VersionAssignment versionAssignment = null;
+    private volatile VersionCache versionCache = null;
+    private volatile ObjectIdSet range = null;
 
     public GitHelper(@Nonnull ProjectConfig globalConfig) throws IOException {
+        this(globalConfig, null);
+    }
+
+    /**
+     * @param from start of the range instead of the configured one, such as the newest version of an existing change
+     *             log
+     */
+    public GitHelper(@Nonnull ProjectConfig globalConfig, @Nullable String from) throws IOException {
         this.globalConfig = globalConfig;
         this.config = globalConfig.getGitConfig();
         this.git = getGit(Paths.get(config.getCloneDir()));
         this.repo = git.getRepository();
+        this.walks = new RevWalkPool(repo);
+        this.commitGraph = CommitGraphFile.open(repo);
+        if (!config.getVersionCache().isEmpty()) {
+            try {
+                versionCache = VersionCache.open(Paths.get(config.getVersionCache()));
+            } catch (IOException e) {
+                System.err.printf("\nWarning: Could not open version cache in %s: %s\n", config.getVersionCache(),
+                        e.getMessage());
+            }
+        }
 
-        String fromRef1 = config.getFrom();
+        String fromRef1 = from == null ? config.getFrom() : from;
         if (fromRef1.isEmpty()) {
             try {
                 fromRef1 = getOldestCommit().getName();
@@ -75,13 +125,78 @@ public class GitHelper {
             System.exit(1);
         }
         toRef = toRef1;
+        fromCommit = ObjectId.fromString(fromRef);
+        toCommit = ObjectId.fromString(toRef);
 
-        if (!isAncestorOf(fromRef, toRef)) {
+        if (!isAncestorOf(fromCommit, toCommit)) {
             throw new RuntimeException(
                     String.format("%s is not an ancestor of %s, can't generate changelog", fromRef, toRef));
         }
     }
 
+    /**
+     * Checks, without setting up a helper, that a range could start at the given ref: it must be part of the
+     * configured range, or be its start.
+     */
+    public static boolean isInConfiguredRange(@Nonnull GitConfig config, @Nonnull String ref) throws IOException {
+        try (Repository repo = getGit(Paths.get(config.getCloneDir())).getRepository();
+             RevWalk walk = new RevWalk(repo)) {
+            ObjectId refCommit = repo.resolve(ref + "^0");
+            ObjectId toCommit = repo.resolve(config.getTo() + "^0");
+            ObjectId fromCommit = config.getFrom().isEmpty() ? null : repo.resolve(config.getFrom() + "^0");
+            if (refCommit == null || toCommit == null) {
+                return false;
+            }
+            RevCommit refRev = walk.parseCommit(refCommit);
+            return walk.isMergedInto(refRev, walk.parseCommit(toCommit))
+                    && (fromCommit == null || walk.isMergedInto(walk.parseCommit(fromCommit), refRev));
+        } catch (MissingObjectException | IncorrectObjectTypeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Finds, without setting up a helper, the newest version tag in the configured range whose name is accepted by the
+     * filter, such as the last tag of a sub project which belongs to a given version of the main project.
+     *
+     * @return the tag name, or null if there is no such tag in the range
+     */
+    @Nullable
+    public static String getNewestVersionTag(@Nonnull GitConfig config, @Nonnull Predicate<String> filter)
+            throws IOException, GitAPIException {
+        try (Repository repo = getGit(Paths.get(config.getCloneDir())).getRepository();
+             RevWalk walk = new RevWalk(repo)) {
+            ObjectId toCommit = repo.resolve(config.getTo() + "^0");
+            ObjectId fromCommit = config.getFrom().isEmpty() ? null : repo.resolve(config.getFrom() + "^0");
+            if (toCommit == null) {
+                return null;
+            }
+            RevCommit to = walk.parseCommit(toCommit);
+            RevCommit from = fromCommit == null ? null : walk.parseCommit(fromCommit);
+
+            String newest = null;
+            RevCommit newestCommit = null;
+            for (Ref tag : Git.wrap(repo).tagList().call()) {
+                String name = Util.getTagName(tag);
+                if (!config.getTagPattern().matcher(name).matches() || !filter.test(name)) {
+                    continue;
+                }
+                RevCommit commit;
+                try {
+                    commit = walk.parseCommit(tag.getObjectId());
+                } catch (MissingObjectException | IncorrectObjectTypeException e) {
+                    continue;
+                }
+                if (walk.isMergedInto(commit, to) && (from == null || walk.isMergedInto(from, commit))
+                        && (newestCommit == null || walk.isMergedInto(newestCommit, commit))) {
+                    newest = name;
+                    newestCommit = commit;
+                }
+            }
+            return newest;
+        }
+    }
+
     /**
      * Returns the version tags which belongs between the specified versions (inclusive): Example: 2.3.0 - 3.0.9 could
      * return 2.3.0, 2.3.1, 2.3.2,...., 3.0.7, 3.0.8, 3.0.8
@@ -161,51 +276,226 @@ public class GitHelper {
      */
     public boolean isAncestorOf(@Nonnull String base, @Nonnull String tip) {
         try {
-            RevWalk walk = new RevWalk(repo);
-
             ObjectId baseCommit = getCommitFromString(base);
             ObjectId tipCommit = getCommitFromString(tip);
 
             if (baseCommit != null && tipCommit != null) {
+                return isAncestorOf(baseCommit, tipCommit);
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        return false;
+    }
+
+    /**
+     * Check if base is an ancestor of tip, both being commits.
+     */
+    public boolean isAncestorOf(@Nonnull AnyObjectId baseCommit, @Nonnull AnyObjectId tipCommit) {
+        ReachabilityIndex index = getReachabilityIndex();
+        if (index.contains(tipCommit)) {
+            return index.isAncestor(baseCommit, tipCommit);
+        }
 
-                return walk.isMergedInto(walk.parseCommit(baseCommit),
-                        walk.parseCommit(tipCommit));
+        // Tip is outside of the indexed history, walk it
+        try (RevWalkPool.Lease lease = walks.borrow()) {
+            RevWalk walk = lease.get();
+            if (commitGraph != null) {
+                return isAncestorOf(walk, commitGraph, baseCommit, tipCommit);
             }
+            return walk.isMergedInto(walk.parseCommit(baseCommit),
+                    walk.parseCommit(tipCommit));
         } catch (IOException e) {
             return false;
         }
+    }
+
+    /**
+     * Parses commits only until the walk reaches the commit-graph, which answers the rest. The commit-graph may be
+     * older than the repository, so it is not assumed to contain either commit.
+     */
+    private static boolean isAncestorOf(@Nonnull RevWalk walk, @Nonnull CommitGraphFile commitGraph,
+                                        @Nonnull AnyObjectId baseCommit, @Nonnull AnyObjectId tipCommit)
+            throws IOException {
+        int basePosition = commitGraph.findPosition(baseCommit);
+        Set<ObjectId> seen = new HashSet<>();
+        Deque<RevCommit> pending = new ArrayDeque<>();
+        pending.push(walk.parseCommit(tipCommit));
+
+        while (!pending.isEmpty()) {
+            RevCommit commit = pending.pop();
+            if (commit.equals(baseCommit)) {
+                return true;
+            }
+            if (!seen.add(commit.toObjectId())) {
+                continue;
+            }
+            int position = commitGraph.findPosition(commit);
+            if (position >= 0) {
+                // The commit-graph is closed under parents, so a base outside of it is not down this path
+                if (basePosition >= 0 && commitGraph.isAncestor(basePosition, position)) {
+                    return true;
+                }
+                continue;
+            }
+            walk.parseHeaders(commit);
+            for (RevCommit parent : commit.getParents()) {
+                pending.push(parent);
+            }
+        }
         return false;
     }
 
+    /**
+     * The index covers everything reachable from the to-ref and from any tag, which is what practically all ancestry
+     * queries are about. It is built on first use.
+     */
+    @Nonnull
+    private ReachabilityIndex getReachabilityIndex() {
+        if (reachabilityIndex == null) {
+            buildReachabilityIndex();
+        }
+        return reachabilityIndex;
+    }
+
+    private synchronized void buildReachabilityIndex() {
+        if (reachabilityIndex == null) {
+            try (RevWalk walk = new RevWalk(repo)) {
+                List<RevCommit> tips = new ArrayList<>();
+                tips.add(walk.parseCommit(toCommit));
+                for (Ref tag : repo.getRefDatabase().getRefs(Constants.R_TAGS).values()) {
+                    if (tag.getObjectId() == null) {
+                        // Symbolic ref to nothing
+                        continue;
+                    }
+                    RevObject target = walk.peel(walk.parseAny(tag.getObjectId()));
+                    if (target instanceof RevCommit) {
+                        tips.add((RevCommit) target);
+                    }
+                }
+                reachabilityIndex = ReachabilityIndex.build(walk, commitGraph, tips);
+            } catch (IOException e) {
+                System.err.printf("\nWarning: Could not index commit history, falling back to slow walks: %s\n",
+                        e.getMessage());
+                reachabilityIndex = ReachabilityIndex.empty();
+            }
+        }
+    }
+
+    /**
+     * Check if the commit is in fromRef..toRef, that is reachable from the to-ref but not from the from-ref. Full
+     * SHAs are looked up directly, so SHAs which are not in this repository, such as heads of pull requests from
+     * forks, are rejected without touching it.
+     */
+    public boolean isInRange(@Nonnull String commit) {
+        if (ObjectId.isId(commit)) {
+            return isInRange(ObjectId.fromString(commit));
+        }
+        try {
+            ObjectId commitId = getCommitFromString(commit);
+            return commitId != null && isInRange(commitId);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public boolean isInRange(@Nonnull AnyObjectId commit) {
+        return getRange().contains(commit);
+    }
+
+    /**
+     * The range is collected once, on first use.
+     */
+    @Nonnull
+    private ObjectIdSet getRange() {
+        if (range == null) {
+            collectRange();
+        }
+        return range;
+    }
+
+    private synchronized void collectRange() {
+        if (range != null) {
+            return;
+        }
+        ObjectIdSet collected = getReachabilityIndex().getRange(fromCommit, toCommit);
+        if (collected == null) {
+            // Not indexed, walk it
+            collected = new ObjectIdSet(1024);
+            try (RevWalkPool.Lease lease = walks.borrow()) {
+                RevWalk walk = lease.get();
+                walk.setRetainBody(false);
+                walk.markStart(walk.parseCommit(toCommit));
+                walk.markUninteresting(walk.parseCommit(fromCommit));
+                for (RevCommit commit : walk) {
+                    collected.add(commit);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        range = collected;
+    }
+
+    /**
+     * Ranks the tags so that every tag comes after the tags it contains, see {@link TagOrder}.
+     *
+     * @return the rank of each tag, by ref name
+     */
+    @Nonnull
+    public Map<String, Integer> getTopologicalRanks(@Nonnull List<Ref> tags, @Nonnull Comparator<Ref> tieBreaker)
+            throws IOException {
+        List<ObjectId> commits = new ArrayList<>(tags.size());
+        for (Ref tag : tags) {
+            ObjectId commit = getCommitFromString(tag.getName());
+            if (commit == null) {
+                throw new IllegalArgumentException("Could not find a commit for: " + tag.getName());
+            }
+            commits.add(commit);
+        }
+
+        ReachabilityIndex index = getReachabilityIndex();
+        List<Ref> sorted = commits.stream().allMatch(index::contains)
+                ? TagOrder.sort(tags, commits, index, tieBreaker)
+                : TagOrder.sort(tags, commits, this::isAncestorOf, tieBreaker);
+
+        Map<String, Integer> ranks = new HashMap<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            ranks.put(sorted.get(i).getName(), i);
+        }
+        return ranks;
+    }
+
     /**
      * Get the merge commit which contains {sha}, which is on the same "branch" as {tip}
      */
     @Nullable
     public ObjectId getLatestMergeCommit(@Nonnull String sha, @Nonnull String tip) throws IOException {
-        RevWalk walk = new RevWalk(repo);
-
         final ObjectId from = getCommitFromString(sha);
         final ObjectId to = getCommitFromString(tip);
 
-        walk.markStart(walk.parseCommit(to));
-        walk.markUninteresting(walk.parseCommit(from));
+        try (RevWalkPool.Lease lease = walks.borrow()) {
+            RevWalk walk = lease.get();
+            walk.markStart(walk.parseCommit(to));
+            walk.markUninteresting(walk.parseCommit(from));
 
-        walk.setRetainBody(false);
-        walk.setRevFilter(new RevFilter() {
-            @Override
-            public boolean include(RevWalk walker, RevCommit commit) throws StopWalkException, IOException {
-                // Merge commits have more than 1 parent, and we only care about certain paths
-                return commit.getParentCount() > 1 && isMergeDecendentOf(commit, from);
-            }
+            walk.setRetainBody(false);
+            walk.setRevFilter(new RevFilter() {
+                @Override
+                public boolean include(RevWalk walker, RevCommit commit) throws StopWalkException, IOException {
+                    // Merge commits have more than 1 parent, and we only care about certain paths
+                    return commit.getParentCount() > 1 && isMergeDecendentOf(commit, from);
+                }
 
-            @Override
-            public RevFilter clone() {
-                return this;
-            }
-        });
+                @Override
+                public RevFilter clone() {
+                    return this;
+                }
+            });
 
-        for (RevCommit commit : walk) {
-            return commit.toObjectId();
+            for (RevCommit commit : walk) {
+                return commit.toObjectId();
+            }
         }
 
         return null;
@@ -215,19 +505,21 @@ public class GitHelper {
      * Returns true if there is a linear line of merge-commits between from and commit.
      */
     private boolean isMergeDecendentOf(@Nonnull ObjectId commit, @Nonnull ObjectId from) throws IOException {
-        if (from.equals(commit.toObjectId())) {
+        try (RevWalkPool.Lease lease = walks.borrow()) {
+            RevWalk walk = lease.get();
+            RevCommit revCommit = walk.parseCommit(commit);
+
+            // Walking the path of both parents will always lead to the root commit, but typically it will take
+            // a path we don't care about. Instead, force a specific direction. The correct merge commit will be
+            // reached by always going "right" (or "left", depending on how you graph looks).
+            while (!from.equals(revCommit)) {
+                if (revCommit.getParentCount() <= 1 || !isAncestorOf(from, revCommit)) {
+                    return false;
+                }
+                revCommit = walk.parseCommit(revCommit.getParent(1));
+            }
             return true;
         }
-
-        RevWalk walk = new RevWalk(repo);
-        RevCommit revCommit = walk.parseCommit(commit);
-
-        // Walking the path of both parents will always lead to the root commit, but typically it will take
-        // a path we don't care about. Instead, force a specific direction. The correct merge commit will be
-        // reached by always going "right" (or "left", depending on how you graph looks).
-        return (revCommit.getParentCount() > 1 &&
-                isAncestorOf(from.getName(), commit.getName()) &&
-                isMergeDecendentOf(revCommit.getParent(1), from));
     }
 
     /**
@@ -238,12 +530,28 @@ public class GitHelper {
         ObjectId baseCommit = getCommitFromString(base);
         ObjectId tipCommit = getCommitFromString(tip);
 
-        if (baseCommit != null && tipCommit != null) {
+        // Nothing to find if tip is already contained in base, and the ancestry check is cheap compared to the walk
+        if (baseCommit != null && tipCommit != null && !isAncestorOf(tipCommit, baseCommit)) {
+            int basePosition = commitGraph == null ? -1 : commitGraph.findPosition(baseCommit);
+            int tipPosition = commitGraph == null ? -1 : commitGraph.findPosition(tipCommit);
+            if (basePosition >= 0 && tipPosition >= 0 && commitGraph.hasGenerations()) {
+                int root = commitGraph.getOldestInRange(basePosition, tipPosition);
+                if (root >= 0) {
+                    return commitGraph.getObjectId(root);
+                }
+                throw new RuntimeException("No root could be found");
+            }
+
+            // The commit-graph is missing, or older than one of the commits
             ObjectId result = null;
             // Want the last commit
-            Iterable<RevCommit> commits = git.log().addRange(baseCommit, tipCommit).call();
-            for (RevCommit commit : commits) {
-                result = commit.toObjectId();
+            try (RevWalkPool.Lease lease = walks.borrow()) {
+                RevWalk walk = lease.get();
+                walk.markStart(walk.parseCommit(tipCommit));
+                walk.markUninteresting(walk.parseCommit(baseCommit));
+                for (RevCommit commit : walk) {
+                    result = commit.toObjectId();
+                }
             }
 
             if (result != null) {
@@ -253,33 +561,200 @@ public class GitHelper {
         throw new RuntimeException("No root could be found");
     }
 
+    /**
+     * Resolutions are cached for the lifetime of this helper, including the ones which fail.
+     *
+     * @return the commit, or null if there is no such commit
+     */
     @Nullable
     public ObjectId getCommitFromString(@Nonnull String base) throws IOException {
-        // ^0 ensures that the id is a commit. Annotated tags have their own ids.
-        return repo.resolve(base + "^0");
+        ObjectId commit = resolvedCommits.get(base);
+        if (commit != null) {
+            resolveCacheHits.increment();
+            return UNRESOLVABLE.equals(commit) ? null : commit;
+        }
+        resolveCacheMisses.increment();
+
+        try {
+            // ^0 ensures that the id is a commit. Annotated tags have their own ids.
+            commit = repo.resolve(base + "^0");
+        } catch (MissingObjectException | IncorrectObjectTypeException e) {
+            // Such as a full SHA which is not in this repo
+            commit = null;
+        }
+        resolvedCommits.put(base, commit == null ? UNRESOLVABLE : commit);
+        return commit;
+    }
+
+    public long getResolveCacheHits() {
+        return resolveCacheHits.sum();
     }
 
+    public long getResolveCacheMisses() {
+        return resolveCacheMisses.sum();
+    }
+
+    public boolean hasVersionCache() {
+        return versionCache != null;
+    }
+
+    /**
+     * @return the number of commits given a version in the version cache, rather than read from it
+     */
+    public long getVersionCacheLabeled() {
+        return versionCacheLabeled.sum();
+    }
+
+    /**
+     * The commit is parsed by a walk of its own, rather than a pooled one, so that it may be kept.
+     */
     @Nullable
     public RevCommit getRevCommitFromString(@Nonnull String sha) throws IOException {
         ObjectId commit = getCommitFromString(sha);
         if (commit == null) {
             return null;
         }
-        return new RevWalk(repo).parseCommit(commit);
+        try (RevWalk walk = new RevWalk(repo)) {
+            return walk.parseCommit(commit);
+        }
     }
 
+    @Nonnull
+    private RevCommit parseCommit(@Nonnull RevWalk walk, @Nonnull String sha) throws IOException {
+        ObjectId commit = getCommitFromString(sha);
+        if (commit == null) {
+            throw new NullPointerException("Could not find a commit for: " + sha);
+        }
+        return walk.parseCommit(commit);
+    }
+
+    /**
+     * Returns the name of the first tag (in list order) which contains the commit, or fallback if none does.
+     */
     @Nonnull
     public String getFirstVersionOf(@Nonnull String commit,
                                     @Nonnull List<Ref> versionTags,
                                     @Nonnull String fallback) {
+        try {
+            ObjectId commitId = getCommitFromString(commit);
+            return commitId == null ? fallback : getFirstVersionOf(commitId, versionTags, fallback);
+        } catch (IOException e) {
+            return fallback;
+        }
+    }
+
+    @Nonnull
+    public String getFirstVersionOf(@Nonnull AnyObjectId commit,
+                                    @Nonnull List<Ref> versionTags,
+                                    @Nonnull String fallback) {
+        VersionCache cache = getVersionCache(versionTags);
+        if (cache != null) {
+            return cache.getVersionOf(commit, fallback);
+        }
+
+        VersionAssignment assignment = getVersionAssignment(versionTags);
+        if (assignment != null) {
+            return assignment.getVersionOf(commit, fallback);
+        }
+
         for (Ref tag : versionTags) {
-            if (isAncestorOf(commit, tag.getName())) {
-                return getTagName(tag);
+            try {
+                ObjectId tagCommit = getCommitFromString(tag.getName());
+                if (tagCommit != null && isAncestorOf(commit, tagCommit)) {
+                    return getTagName(tag);
+                }
+            } catch (IOException e) {
+                // Not a version of this commit then
             }
         }
         return fallback;
     }
 
+    /**
+     * Versions of all commits are labeled in one pass for the given list of tags, and reused for as long as the same
+     * list is asked about.
+     *
+     * @return null if some tag is outside the indexed history
+     */
+    @Nullable
+    private VersionAssignment getVersionAssignment(@Nonnull List<Ref> versionTags) {
+        VersionAssignment assignment = versionAssignment;
+        if (assignment != null && assignment.isFor(versionTags)) {
+            return assignment;
+        }
+        return computeVersionAssignment(versionTags);
+    }
+
+    @Nullable
+    private synchronized VersionAssignment computeVersionAssignment(@Nonnull List<Ref> versionTags) {
+        if (versionAssignment == null || !versionAssignment.isFor(versionTags)) {
+            ReachabilityIndex index = getReachabilityIndex();
+            List<ObjectId> tagCommits = new ArrayList<>();
+            for (Ref tag : versionTags) {
+                try {
+                    ObjectId tagCommit = getCommitFromString(tag.getName());
+                    if (tagCommit == null || !index.contains(tagCommit)) {
+                        return null;
+                    }
+                    tagCommits.add(tagCommit);
+                } catch (IOException e) {
+                    return null;
+                }
+            }
+            versionAssignment = VersionAssignment.compute(index, versionTags, tagCommits);
+        }
+        return versionAssignment;
+    }
+
+    /**
+     * The cache on disk is brought up to date the first time a list of tags is asked about.
+     *
+     * @return null if there is no cache, or it could not be updated
+     */
+    @Nullable
+    private VersionCache getVersionCache(@Nonnull List<Ref> versionTags) {
+        VersionCache cache = versionCache;
+        if (cache == null) {
+            return null;
+        }
+        List<String> tagRefNames = versionTags.stream().map(Ref::getName).collect(Collectors.toList());
+        if (cache.isFor(tagRefNames)) {
+            return cache;
+        }
+        return updateVersionCache(tagRefNames);
+    }
+
+    @Nullable
+    private synchronized VersionCache updateVersionCache(@Nonnull List<String> tagRefNames) {
+        if (versionCache == null || versionCache.isFor(tagRefNames)) {
+            return versionCache;
+        }
+        try (RevWalk walk = new RevWalk(repo)) {
+            walk.setRetainBody(false);
+            List<ObjectId> tagCommits = new ArrayList<>();
+            for (String tagRefName : tagRefNames) {
+                tagCommits.add(getCommitFromString(tagRefName));
+            }
+            // Parents come from the index if something else needed it already, it is not built just for this
+            versionCacheLabeled.add(
+                    versionCache.update(new CommitParents(walk, commitGraph, reachabilityIndex), tagRefNames,
+                            tagCommits));
+        } catch (IOException e) {
+            System.err.printf("\nWarning: Could not update version cache: %s\n", e.getMessage());
+            closeVersionCache();
+        }
+        return versionCache;
+    }
+
+    private void closeVersionCache() {
+        try {
+            versionCache.close();
+        } catch (IOException e) {
+            System.err.printf("\nWarning: Could not close version cache: %s\n", e.getMessage());
+        }
+        versionCache = null;
+    }
+
     private static String getTagName(Ref tag) {
         return tag.getName().substring(1 + tag.getName().lastIndexOf("/"));
     }
@@ -292,43 +767,27 @@ public class GitHelper {
         return isAncestorOf(commit, toRef);
     }
 
+    public boolean isAncestorOfToRef(@Nonnull AnyObjectId commit) {
+        return isAncestorOf(commit, toCommit);
+    }
+
     public boolean isAncestorOfFromRef(@Nonnull String commit) {
         return isAncestorOf(commit, fromRef);
     }
 
+    public boolean isAncestorOfFromRef(@Nonnull AnyObjectId commit) {
+        return isAncestorOf(commit, fromCommit);
+    }
+
     public Change convertToSubChange(@Nonnull GitCommitConfig commit,
                                      @Nonnull String category,
                                      @Nonnull String motherVersion) {
-        try {
-            final RevCommit revCommit = getRevCommitFromString(commit.getSha());
-            if (revCommit == null) {
-                throw new NullPointerException("Could not find a commit for: " + commit.getSha());
-            }
+        try (RevWalkPool.Lease lease = walks.borrow()) {
+            final RevCommit revCommit = parseCommit(lease.get(), commit.getSha());
             final String changeText = getChangeText(commit.getText(), revCommit);
 
-            return new Change() {
-                @Override
-                public int getSortingNumber() {
-                    return revCommit.getCommitTime();
-                }
-
-                @Nonnull
-                @Override
-                public List<String> getLabels() {
-                    return Collections.singletonList(category);
-                }
-
-                @Nonnull
-                @Override
-                public String getVersion() {
-                    return motherVersion;
-                }
-
-                @Override
-                public String toString() {
-                    return changeText;
-                }
-            };
+            return new ChangeRecord(revCommit.getCommitTime(), changeText, motherVersion,
+                    Collections.singletonList(category), category);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -365,45 +824,34 @@ public class GitHelper {
         return Util.formatChangeText(text, additions);
     }
 
+    /**
+     * @param category where the change goes, see {@link org.neo4j.changelog.ChangeLog#getCategoryFor}
+     */
     public Change convertToChange(@Nonnull GitCommitConfig commit,
                                   @Nonnull List<Ref> versionTags,
-                                  @Nonnull String nextHeader) {
-        try {
-            final RevCommit revCommit = getRevCommitFromString(commit.getSha());
-            if (revCommit == null) {
-                throw new NullPointerException("Could not find a commit for: " + commit.getSha());
-            }
-            final String firstVersion = getFirstVersionOf(commit.getSha(), versionTags, nextHeader);
+                                  @Nonnull String nextHeader,
+                                  @Nonnull String category) {
+        final String firstVersion = getFirstVersionOf(commit.getSha(), versionTags, nextHeader);
+        try (RevWalkPool.Lease lease = walks.borrow()) {
+            final RevCommit revCommit = parseCommit(lease.get(), commit.getSha());
             final String changeText = getChangeText(commit.getText(), revCommit);
 
-            return new Change() {
-                @Override
-                public int getSortingNumber() {
-                    return revCommit.getCommitTime();
-                }
-
-                @Nonnull
-                @Override
-                public List<String> getLabels() {
-                    return Collections.singletonList(commit.getCategory());
-                }
-
-                @Nonnull
-                @Override
-                public String getVersion() {
-                    return firstVersion;
-                }
-
-                @Override
-                public String toString() {
-                    return changeText;
-                }
-            };
+            return new ChangeRecord(revCommit.getCommitTime(), changeText, firstVersion,
+                    Collections.singletonList(commit.getCategory()), category);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    @Override
+    public synchronized void close() {
+        if (versionCache != null) {
+            closeVersionCache();
+        }
+        walks.close();
+        repo.close();
+    }
+
     private static String formatCommitLink(@Nonnull String user, @Nonnull String repo, @Nonnull String sha) {
         return String.format(GITHUB_COMMIT_LINK, user, repo, sha);
     }
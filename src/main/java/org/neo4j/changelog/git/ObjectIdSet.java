@@ -0,0 +1,134 @@
+package org.neo4j.changelog.git;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A set of object ids stored as raw words in one flat array, with open addressing. Far more compact than a set of
+ * ObjectId instances, which matters for ranges of hundreds of thousands of commits.
+ *
+ * Not thread safe while being filled. Safe to query from several threads once filled.
+ */
+class ObjectIdSet {
+    private static final int WORDS = 5;
+    private static final float MAX_LOAD = 0.5f;
+
+    // Slot i holds words[5 * i] to words[5 * i + 4]. The zero id marks a free slot.
+    private int[] words;
+    private int mask;
+    private int size = 0;
+    private boolean containsZero = false;
+
+    ObjectIdSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / MAX_LOAD)) - 1) << 1;
+        this.words = new int[capacity * WORDS];
+        this.mask = capacity - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the id was not already in the set
+     */
+    boolean add(@Nonnull AnyObjectId id) {
+        if (isZero(id)) {
+            boolean added = !containsZero;
+            containsZero = true;
+            size += added ? 1 : 0;
+            return added;
+        }
+
+        if (size + 1 > (mask + 1) * MAX_LOAD) {
+            grow();
+        }
+        int slot = find(words, mask, id);
+        if (!isFree(words, slot)) {
+            return false;
+        }
+        int offset = slot * WORDS;
+        for (int i = 0; i < WORDS; i++) {
+            words[offset + i] = word(id, i);
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Compares the words in place, so that lookups don't allocate.
+     */
+    boolean contains(@Nonnull AnyObjectId id) {
+        if (isZero(id)) {
+            return containsZero;
+        }
+        return !isFree(words, find(words, mask, id));
+    }
+
+    /**
+     * @return the slot which holds the id, or the free slot where it belongs
+     */
+    private static int find(@Nonnull int[] words, int mask, @Nonnull AnyObjectId id) {
+        // Object ids are already uniformly distributed, and the hash code is the second word
+        int slot = id.hashCode() & mask;
+        while (!isFree(words, slot) && !matches(words, slot, id)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        int capacity = 2 * (mask + 1);
+        int[] grown = new int[capacity * WORDS];
+        for (int slot = 0; slot <= mask; slot++) {
+            if (!isFree(words, slot)) {
+                // Every id is in the set once, so it goes in the first free slot
+                int target = words[slot * WORDS + 1] & (capacity - 1);
+                while (!isFree(grown, target)) {
+                    target = (target + 1) & (capacity - 1);
+                }
+                System.arraycopy(words, slot * WORDS, grown, target * WORDS, WORDS);
+            }
+        }
+        words = grown;
+        mask = capacity - 1;
+    }
+
+    private static boolean matches(@Nonnull int[] words, int slot, @Nonnull AnyObjectId id) {
+        int offset = slot * WORDS;
+        for (int i = 0; i < WORDS; i++) {
+            if (words[offset + i] != word(id, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isFree(@Nonnull int[] words, int slot) {
+        int offset = slot * WORDS;
+        for (int i = 0; i < WORDS; i++) {
+            if (words[offset + i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isZero(@Nonnull AnyObjectId id) {
+        for (int i = 0; i < WORDS; i++) {
+            if (word(id, i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the i:th big-endian word of the id, as {@link AnyObjectId#copyRawTo(int[], int)} gives it
+     */
+    private static int word(@Nonnull AnyObjectId id, int i) {
+        int b = 4 * i;
+        return id.getByte(b) << 24 | id.getByte(b + 1) << 16 | id.getByte(b + 2) << 8 | id.getByte(b + 3);
+    }
+}
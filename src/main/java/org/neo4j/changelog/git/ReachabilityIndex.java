@@ -0,0 +1,432 @@
+package org.neo4j.changelog.git;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdOwnerMap;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A compact, read-only copy of the commit graph which answers ancestry queries without walking the repository.
+ *
+ * The graph is closed under parents: it contains the given tips and everything reachable from them. Each commit is
+ * given a dense integer id in DFS post-order (parents before children), along with a generation number, its DFS
+ * pre-order number and the lowest id it can reach. These labels answer most queries directly, the rest are
+ * settled by a small walk which is pruned by the same labels.
+ */
+class ReachabilityIndex {
+    private static final int[] NO_PARENTS = new int[0];
+
+    private final ObjectIdOwnerMap<Node> nodes;
+    // Commit of each id
+    private final Node[] commits;
+    // Parents of commit i are parents[parentStart[i]] until parents[parentStart[i + 1]]
+    private final int[] parentStart;
+    private final int[] parents;
+    private final int[] generation;
+    private final int[] preOrder;
+    private final int[] lowest;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private ReachabilityIndex(@Nonnull ObjectIdOwnerMap<Node> nodes, @Nonnull Node[] commits,
+                              @Nonnull int[] parentStart, @Nonnull int[] parents, @Nonnull int[] generation,
+                              @Nonnull int[] preOrder, @Nonnull int[] lowest) {
+        this.nodes = nodes;
+        this.commits = commits;
+        this.parentStart = parentStart;
+        this.parents = parents;
+        this.generation = generation;
+        this.preOrder = preOrder;
+        this.lowest = lowest;
+    }
+
+    /**
+     * An index which contains nothing, so that every query falls back to walking the repository.
+     */
+    @Nonnull
+    static ReachabilityIndex empty() {
+        return new ReachabilityIndex(new ObjectIdOwnerMap<>(), new Node[0], new int[1], NO_PARENTS, NO_PARENTS,
+                NO_PARENTS, NO_PARENTS);
+    }
+
+    /**
+     * Index every commit reachable from the given tips.
+     */
+    @Nonnull
+    static ReachabilityIndex build(@Nonnull RevWalk walk, @Nonnull Collection<? extends AnyObjectId> tips)
+            throws IOException {
+        return build(walk, null, tips);
+    }
+
+    /**
+     * Index every commit reachable from the given tips. Parents are read from the commit-graph where it has them,
+     * and only commits newer than the commit-graph are parsed.
+     */
+    @Nonnull
+    static ReachabilityIndex build(@Nonnull RevWalk walk, @Nullable CommitGraphFile commitGraph,
+                                   @Nonnull Collection<? extends AnyObjectId> tips) throws IOException {
+        walk.setRetainBody(false);
+        Builder builder = new Builder(walk, commitGraph);
+        for (AnyObjectId tip : tips) {
+            builder.visit(tip);
+        }
+        return builder.build();
+    }
+
+    int size() {
+        return generation.length;
+    }
+
+    boolean contains(@Nonnull AnyObjectId commit) {
+        return nodes.contains(commit);
+    }
+
+    /**
+     * @return the dense id of the commit, or -1 if it is not indexed
+     */
+    int getId(@Nonnull AnyObjectId commit) {
+        Node node = nodes.get(commit);
+        return node == null ? -1 : node.id;
+    }
+
+    /**
+     * @return the parents of the commit, or null if it is not indexed
+     */
+    @Nullable
+    ObjectId[] getParents(@Nonnull AnyObjectId commit) {
+        Node node = nodes.get(commit);
+        if (node == null) {
+            return null;
+        }
+        ObjectId[] result = new ObjectId[parentStart[node.id + 1] - parentStart[node.id]];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = commits[parents[parentStart[node.id] + i]].copy();
+        }
+        return result;
+    }
+
+    /**
+     * Label every indexed commit with the position of the first tip (in the given order) which contains it, or -1 if
+     * none does. Every commit is visited at most once: a walk from a tip stops at commits which an earlier tip
+     * already labeled, since their ancestors are then labeled too.
+     */
+    @Nonnull
+    int[] labelFirstContaining(@Nonnull int[] tips) {
+        int[] labels = new int[size()];
+        Arrays.fill(labels, -1);
+        int[] stack = new int[64];
+
+        for (int label = 0; label < tips.length; label++) {
+            int tip = tips[label];
+            if (labels[tip] != -1) {
+                continue;
+            }
+            labels[tip] = label;
+            int top = 0;
+            stack[top++] = tip;
+
+            while (top > 0) {
+                int commit = stack[--top];
+                for (int i = parentStart[commit]; i < parentStart[commit + 1]; i++) {
+                    int parent = parents[i];
+                    if (labels[parent] == -1) {
+                        labels[parent] = label;
+                        stack = ensureCapacity(stack, top + 1);
+                        stack[top++] = parent;
+                    }
+                }
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * For each of the given commits, find the others which it contains with none of them in between. The walk from
+     * each commit stops at the others, and at commits older than all of them, so the history between them is only
+     * walked from the commits right above it, instead of checking every pair.
+     *
+     * @param commits distinct ids
+     * @return for each commit, the positions of the commits it directly contains
+     */
+    @Nonnull
+    int[][] nearestContained(@Nonnull int[] commits) {
+        int[] positionOf = new int[size()];
+        Arrays.fill(positionOf, -1);
+        int oldest = Integer.MAX_VALUE;
+        for (int position = 0; position < commits.length; position++) {
+            positionOf[commits[position]] = position;
+            oldest = Math.min(oldest, commits[position]);
+        }
+
+        Scratch s = scratch.get();
+        int[][] contained = new int[commits.length][];
+        int[] found = new int[8];
+        for (int position = 0; position < commits.length; position++) {
+            s.reset(size());
+            int count = 0;
+            int top = 0;
+            s.stack[top++] = commits[position];
+            s.visit(commits[position]);
+
+            while (top > 0) {
+                int commit = s.stack[--top];
+                for (int i = parentStart[commit]; i < parentStart[commit + 1]; i++) {
+                    int parent = parents[i];
+                    // Ancestors have lower ids, so nothing below the oldest commit can be one of them
+                    if (parent < oldest || s.isVisited(parent)) {
+                        continue;
+                    }
+                    s.visit(parent);
+                    if (positionOf[parent] >= 0) {
+                        found = ensureCapacity(found, count + 1);
+                        found[count++] = positionOf[parent];
+                    } else {
+                        s.stack = ensureCapacity(s.stack, top + 1);
+                        s.stack[top++] = parent;
+                    }
+                }
+            }
+            contained[position] = Arrays.copyOf(found, count);
+        }
+        return contained;
+    }
+
+    /**
+     * Collect the commits which tip can reach but base can not, like `git rev-list base..tip`.
+     *
+     * @return null if base or tip is not indexed
+     */
+    @Nullable
+    ObjectIdSet getRange(@Nonnull AnyObjectId base, @Nonnull AnyObjectId tip) {
+        int baseId = getId(base);
+        int tipId = getId(tip);
+        if (baseId < 0 || tipId < 0) {
+            return null;
+        }
+
+        int[] labels = labelFirstContaining(new int[]{baseId, tipId});
+        int count = 0;
+        for (int label : labels) {
+            if (label == 1) {
+                count++;
+            }
+        }
+        ObjectIdSet range = new ObjectIdSet(count);
+        for (Node node : nodes) {
+            if (labels[node.id] == 1) {
+                range.add(node);
+            }
+        }
+        return range;
+    }
+
+    /**
+     * Check if base is an ancestor of tip (or the same commit). The tip must be contained in the index. Since the
+     * index is closed under parents, a base which is not contained can never be an ancestor.
+     */
+    boolean isAncestor(@Nonnull AnyObjectId base, @Nonnull AnyObjectId tip) {
+        Node baseNode = nodes.get(base);
+        Node tipNode = nodes.get(tip);
+        if (tipNode == null) {
+            throw new IllegalArgumentException("Commit is not indexed: " + tip.name());
+        }
+        return baseNode != null && isAncestor(baseNode.id, tipNode.id);
+    }
+
+    boolean isAncestor(int base, int tip) {
+        if (base == tip) {
+            return true;
+        }
+        if (isNeverAncestor(base, tip)) {
+            return false;
+        }
+        if (isTreeAncestor(base, tip)) {
+            return true;
+        }
+        return search(base, tip);
+    }
+
+    /**
+     * Negative cut: an ancestor always has a lower generation, a lower post-order id and can not reach further down
+     * than its descendants.
+     */
+    private boolean isNeverAncestor(int base, int tip) {
+        return generation[base] >= generation[tip] || base > tip || lowest[base] < lowest[tip];
+    }
+
+    /**
+     * Positive cut: base lies below tip in the DFS spanning tree.
+     */
+    private boolean isTreeAncestor(int base, int tip) {
+        return preOrder[tip] <= preOrder[base] && base <= tip;
+    }
+
+    private boolean search(int base, int tip) {
+        Scratch s = scratch.get();
+        s.reset(size());
+        int top = 0;
+        s.stack[top++] = tip;
+        s.visit(tip);
+
+        while (top > 0) {
+            int commit = s.stack[--top];
+            for (int i = parentStart[commit]; i < parentStart[commit + 1]; i++) {
+                int parent = parents[i];
+                if (parent == base || isTreeAncestor(base, parent)) {
+                    return true;
+                }
+                if (s.isVisited(parent) || isNeverAncestor(base, parent)) {
+                    continue;
+                }
+                s.visit(parent);
+                s.stack = ensureCapacity(s.stack, top + 1);
+                s.stack[top++] = parent;
+            }
+        }
+        return false;
+    }
+
+    private static int[] ensureCapacity(@Nonnull int[] array, int size) {
+        if (array.length >= size) {
+            return array;
+        }
+        return Arrays.copyOf(array, Math.max(size, 2 * array.length));
+    }
+
+    private static class Node extends ObjectIdOwnerMap.Entry {
+        private static final long serialVersionUID = 1L;
+
+        int id = -1;
+        int preOrder;
+        ObjectId[] parents;
+
+        Node(@Nonnull AnyObjectId commit) {
+            super(commit);
+        }
+    }
+
+    /**
+     * Per-thread visit marks for {@link #search}. Bumping the epoch clears all marks without touching the array.
+     */
+    private static class Scratch {
+        int[] marks = new int[0];
+        int epoch = 0;
+        int[] stack = new int[64];
+
+        void reset(int size) {
+            if (marks.length < size || epoch == Integer.MAX_VALUE) {
+                marks = new int[size];
+                epoch = 0;
+            }
+            epoch++;
+        }
+
+        boolean isVisited(int commit) {
+            return marks[commit] == epoch;
+        }
+
+        void visit(int commit) {
+            marks[commit] = epoch;
+        }
+    }
+
+    private static class Builder {
+        private final CommitParents commitParents;
+        private final ObjectIdOwnerMap<Node> nodes = new ObjectIdOwnerMap<>();
+        private int[] parentStart = new int[1024];
+        private int[] parents = new int[1024];
+        private int[] generation = new int[1024];
+        private int[] preOrder = new int[1024];
+        private int[] lowest = new int[1024];
+        private int parentCount = 0;
+        private int nextPreOrder = 0;
+        private int nextId = 0;
+
+        Builder(@Nonnull RevWalk walk, @Nullable CommitGraphFile commitGraph) {
+            this.commitParents = new CommitParents(walk, commitGraph, null);
+        }
+
+        /**
+         * Iterative depth first search over parents, since linear histories are far too deep for recursion.
+         */
+        void visit(@Nonnull AnyObjectId tip) throws IOException {
+            if (nodes.contains(tip)) {
+                return;
+            }
+            ArrayDeque<Node> stack = new ArrayDeque<>();
+            ArrayDeque<Integer> nextParent = new ArrayDeque<>();
+            stack.push(enter(tip));
+            nextParent.push(0);
+
+            while (!stack.isEmpty()) {
+                Node node = stack.peek();
+                int next = nextParent.pop();
+                if (next < node.parents.length) {
+                    nextParent.push(next + 1);
+                    ObjectId parent = node.parents[next];
+                    if (!nodes.contains(parent)) {
+                        stack.push(enter(parent));
+                        nextParent.push(0);
+                    }
+                } else {
+                    stack.pop();
+                    finish(node);
+                }
+            }
+        }
+
+        @Nonnull
+        private Node enter(@Nonnull AnyObjectId commit) throws IOException {
+            Node node = new Node(commit);
+            node.preOrder = nextPreOrder++;
+            node.parents = commitParents.get(commit);
+            nodes.add(node);
+            return node;
+        }
+
+        private void finish(@Nonnull Node node) {
+            int id = nextId++;
+            node.id = id;
+
+            parentStart = ensureCapacity(parentStart, id + 2);
+            generation = ensureCapacity(generation, id + 1);
+            preOrder = ensureCapacity(preOrder, id + 1);
+            lowest = ensureCapacity(lowest, id + 1);
+
+            int gen = 1;
+            int low = id;
+            parentStart[id] = parentCount;
+            for (ObjectId parent : node.parents) {
+                int parentId = nodes.get(parent).id;
+                parents = ensureCapacity(parents, parentCount + 1);
+                parents[parentCount++] = parentId;
+                gen = Math.max(gen, generation[parentId] + 1);
+                low = Math.min(low, lowest[parentId]);
+            }
+            parentStart[id + 1] = parentCount;
+            generation[id] = gen;
+            preOrder[id] = node.preOrder;
+            lowest[id] = low;
+            // Not needed anymore
+            node.parents = null;
+        }
+
+        @Nonnull
+        ReachabilityIndex build() {
+            int size = nextId;
+            Node[] commits = new Node[size];
+            for (Node node : nodes) {
+                commits[node.id] = node;
+            }
+            return new ReachabilityIndex(nodes, commits, Arrays.copyOf(parentStart, size + 1),
+                    Arrays.copyOf(parents, parentCount), Arrays.copyOf(generation, size),
+                    Arrays.copyOf(preOrder, size), Arrays.copyOf(lowest, size));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.neo4j.changelog.git;
+
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Reusable walks, so that each query doesn't open an object reader of its own, and so that readers are released when
+ * done. Each thread has its own walks, since a RevWalk is not thread safe. A thread can hold several walks at once,
+ * for queries which run inside other queries.
+ *
+ * Walks are disposed when returned, so that an idle walk doesn't keep every commit it has parsed alive. Objects
+ * parsed with a walk must not be used after its lease is closed.
+ */
+class RevWalkPool implements AutoCloseable {
+    private final Repository repo;
+    private final ThreadLocal<ArrayDeque<RevWalk>> idle = ThreadLocal.withInitial(ArrayDeque::new);
+    private final Queue<RevWalk> created = new ConcurrentLinkedQueue<>();
+
+    RevWalkPool(@Nonnull Repository repo) {
+        this.repo = repo;
+    }
+
+    /**
+     * Borrow a walk for the current thread. Return it by closing the lease, on the same thread.
+     */
+    @Nonnull
+    Lease borrow() {
+        RevWalk walk = idle.get().poll();
+        if (walk == null) {
+            walk = new RevWalk(repo);
+            created.add(walk);
+        }
+        return new Lease(walk);
+    }
+
+    /**
+     * Releases the object readers of all walks. The pool must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        RevWalk walk;
+        while ((walk = created.poll()) != null) {
+            walk.close();
+        }
+    }
+
+    class Lease implements AutoCloseable {
+        private final RevWalk walk;
+
+        private Lease(@Nonnull RevWalk walk) {
+            this.walk = walk;
+        }
+
+        @Nonnull
+        RevWalk get() {
+            return walk;
+        }
+
+        /**
+         * Forgets everything parsed by the query, and clears the settings it left.
+         */
+        @Override
+        public void close() {
+            walk.dispose();
+            walk.setRevFilter(RevFilter.ALL);
+            walk.setTreeFilter(TreeFilter.ALL);
+            walk.sort(RevSort.NONE);
+            walk.setRetainBody(true);
+            idle.get().push(walk);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.neo4j.changelog.git;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.neo4j.changelog.Util;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Orders tags topologically: a tag always comes after every tag it contains. Tags which do not contain each other,
+ * such as tags on diverging maintenance branches, are ordered by semantic version. This is a consistent total order,
+ * unlike comparing tags pairwise by ancestry.
+ *
+ * Which tags contain each other is read from the {@link ReachabilityIndex} when it has the tags, so that repositories
+ * with hundreds of tags don't check every pair.
+ */
+class TagOrder {
+    private static final Comparator<Ref> BY_VERSION =
+            Comparator.comparing(Util::getTagName, Util.getVersionComparator()).thenComparing(Ref::getName);
+
+    interface Ancestry {
+        boolean isAncestorOf(@Nonnull ObjectId base, @Nonnull ObjectId tip) throws IOException;
+    }
+
+    /**
+     * Finds which tags contain each other by checking every pair, which is only needed when the tags are not indexed.
+     *
+     * @param tags       to sort
+     * @param commits    the commit of each tag, in the same order
+     * @param ancestry   answers ancestry between two tag commits
+     * @param tieBreaker orders tags which point to the same commit, before falling back to semantic version
+     * @return the tags, sorted
+     */
+    @Nonnull
+    static List<Ref> sort(@Nonnull List<Ref> tags, @Nonnull List<ObjectId> commits, @Nonnull Ancestry ancestry,
+                          @Nonnull Comparator<Ref> tieBreaker) throws IOException {
+        Map<ObjectId, List<Ref>> byCommit = group(tags, commits, tieBreaker);
+        List<ObjectId> groupCommits = new ArrayList<>(byCommit.keySet());
+        int size = groupCommits.size();
+
+        List<List<Integer>> ancestors = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            ancestors.add(new ArrayList<>());
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                if (ancestry.isAncestorOf(groupCommits.get(i), groupCommits.get(j))) {
+                    ancestors.get(j).add(i);
+                } else if (ancestry.isAncestorOf(groupCommits.get(j), groupCommits.get(i))) {
+                    ancestors.get(i).add(j);
+                }
+            }
+        }
+
+        int[][] contained = new int[size][];
+        for (int i = 0; i < size; i++) {
+            contained[i] = ancestors.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+        return sort(new ArrayList<>(byCommit.values()), contained);
+    }
+
+    /**
+     * Finds which tags contain each other in one walk over the index, see
+     * {@link ReachabilityIndex#nearestContained(int[])}.
+     *
+     * @param index which contains the commit of every tag
+     */
+    @Nonnull
+    static List<Ref> sort(@Nonnull List<Ref> tags, @Nonnull List<ObjectId> commits, @Nonnull ReachabilityIndex index,
+                          @Nonnull Comparator<Ref> tieBreaker) {
+        Map<ObjectId, List<Ref>> byCommit = group(tags, commits, tieBreaker);
+        int[] ids = new int[byCommit.size()];
+        int i = 0;
+        for (ObjectId commit : byCommit.keySet()) {
+            ids[i] = index.getId(commit);
+            if (ids[i++] < 0) {
+                throw new IllegalArgumentException("Commit is not indexed: " + commit.name());
+            }
+        }
+        return sort(new ArrayList<>(byCommit.values()), index.nearestContained(ids));
+    }
+
+    /**
+     * Tags on the same commit are sorted as one group.
+     */
+    @Nonnull
+    private static Map<ObjectId, List<Ref>> group(@Nonnull List<Ref> tags, @Nonnull List<ObjectId> commits,
+                                                  @Nonnull Comparator<Ref> tieBreaker) {
+        Map<ObjectId, List<Ref>> byCommit = new LinkedHashMap<>();
+        for (int i = 0; i < tags.size(); i++) {
+            byCommit.computeIfAbsent(commits.get(i), c -> new ArrayList<>()).add(tags.get(i));
+        }
+        for (List<Ref> group : byCommit.values()) {
+            group.sort(BY_VERSION);
+            group.sort(tieBreaker);
+        }
+        return byCommit;
+    }
+
+    /**
+     * Kahn's algorithm, picking the lowest version among the groups whose ancestors are all placed.
+     *
+     * @param contained for each group, the groups it contains. Only the nearest ones are needed.
+     */
+    @Nonnull
+    private static List<Ref> sort(@Nonnull List<List<Ref>> groups, @Nonnull int[][] contained) {
+        int size = groups.size();
+        List<List<Integer>> descendants = new ArrayList<>();
+        int[] ancestorCount = new int[size];
+        for (int i = 0; i < size; i++) {
+            descendants.add(new ArrayList<>());
+        }
+        for (int i = 0; i < size; i++) {
+            for (int ancestor : contained[i]) {
+                descendants.get(ancestor).add(i);
+                ancestorCount[i]++;
+            }
+        }
+
+        Comparator<Integer> byLowestVersion = Comparator.comparing(g -> groups.get(g).stream().min(BY_VERSION).get(),
+                BY_VERSION);
+        PriorityQueue<Integer> ready = new PriorityQueue<>(Math.max(1, size), byLowestVersion);
+        for (int i = 0; i < size; i++) {
+            if (ancestorCount[i] == 0) {
+                ready.add(i);
+            }
+        }
+
+        List<Ref> sorted = new ArrayList<>();
+        while (!ready.isEmpty()) {
+            int group = ready.poll();
+            sorted.addAll(groups.get(group));
+            for (int descendant : descendants.get(group)) {
+                if (--ancestorCount[descendant] == 0) {
+                    ready.add(descendant);
+                }
+            }
+        }
+        return sorted;
+    }
+}
@@ -0,0 +1,66 @@
+package org.neo4j.changelog.git;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.neo4j.changelog.Util;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The first version which contains each commit, computed for one ordered list of version tags in a single pass over
+ * the history.
+ */
+class VersionAssignment {
+    private final List<String> refNames;
+    private final List<String> versions;
+    private final ReachabilityIndex index;
+    private final int[] labels;
+
+    private VersionAssignment(@Nonnull List<Ref> versionTags, @Nonnull ReachabilityIndex index,
+                              @Nonnull int[] labels) {
+        this.refNames = versionTags.stream().map(Ref::getName).collect(Collectors.toList());
+        this.versions = versionTags.stream().map(Util::getTagName).collect(Collectors.toList());
+        this.index = index;
+        this.labels = labels;
+    }
+
+    /**
+     * @param versionTags sorted from oldest to newest
+     * @param tagCommits  the commit of each tag, in the same order
+     */
+    @Nonnull
+    static VersionAssignment compute(@Nonnull ReachabilityIndex index, @Nonnull List<Ref> versionTags,
+                                     @Nonnull List<? extends AnyObjectId> tagCommits) {
+        int[] tips = new int[tagCommits.size()];
+        for (int i = 0; i < tips.length; i++) {
+            tips[i] = index.getId(tagCommits.get(i));
+            if (tips[i] < 0) {
+                throw new IllegalArgumentException("Tag is not indexed: " + versionTags.get(i).getName());
+            }
+        }
+        return new VersionAssignment(versionTags, index, index.labelFirstContaining(tips));
+    }
+
+    boolean isFor(@Nonnull List<Ref> versionTags) {
+        if (refNames.size() != versionTags.size()) {
+            return false;
+        }
+        for (int i = 0; i < refNames.size(); i++) {
+            if (!refNames.get(i).equals(versionTags.get(i).getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Nonnull
+    String getVersionOf(@Nonnull AnyObjectId commit, @Nonnull String fallback) {
+        int id = index.getId(commit);
+        if (id < 0 || labels[id] < 0) {
+            return fallback;
+        }
+        return versions.get(labels[id]);
+    }
+}
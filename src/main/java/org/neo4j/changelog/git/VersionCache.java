@@ -0,0 +1,284 @@
+package org.neo4j.changelog.git;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The first version of each commit, kept on disk between runs together with a manifest of the tags it was computed
+ * for. Versions only change when tags are added or moved. When tags have only been added after the known ones, just
+ * the commits which no known tag contains are labeled. Otherwise everything is labeled again.
+ *
+ * The table is memory mapped and uses open addressing. Each slot holds a commit id and the position of its version in
+ * the manifest plus one, so that zero is an empty slot. Commits which no tag contains are not stored.
+ */
+class VersionCache implements AutoCloseable {
+    static final String TABLE = "versions";
+    static final String MANIFEST = "tags";
+    private static final int MAGIC = 0x56455231; // VER1
+    private static final int HEADER_SIZE = 12;
+    private static final int ID_LENGTH = Constants.OBJECT_ID_LENGTH;
+    private static final int SLOT_SIZE = ID_LENGTH + 4;
+    private static final int MIN_CAPACITY = 1 << 12;
+
+    private final Path dir;
+    private FileChannel channel;
+    private volatile MappedByteBuffer table;
+    private int size;
+    // One line per tag, "<sha> <ref name>", in the order the versions were assigned
+    private List<String> manifest;
+    private volatile List<String> refNames = Collections.emptyList();
+    private volatile List<String> versions = Collections.emptyList();
+
+    private VersionCache(@Nonnull Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Opens the cache in the directory, or starts an empty one if there is none or it can't be read.
+     */
+    @Nonnull
+    static VersionCache open(@Nonnull Path dir) throws IOException {
+        Files.createDirectories(dir);
+        VersionCache cache = new VersionCache(dir);
+        Path manifest = dir.resolve(MANIFEST);
+        Path table = dir.resolve(TABLE);
+        if (Files.isRegularFile(manifest) && Files.isRegularFile(table)) {
+            cache.channel = FileChannel.open(table, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            cache.table = cache.channel.map(FileChannel.MapMode.READ_WRITE, 0, cache.channel.size());
+            if (cache.channel.size() >= HEADER_SIZE && cache.table.getInt(0) == MAGIC
+                    && Integer.bitCount(cache.table.getInt(4)) == 1
+                    && cache.channel.size() == HEADER_SIZE + (long) cache.table.getInt(4) * SLOT_SIZE) {
+                cache.size = cache.table.getInt(8);
+                cache.manifest = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+                return cache;
+            }
+            System.err.printf("\nWarning: Ignoring unreadable version cache in %s\n", dir);
+            cache.channel.close();
+        }
+        cache.reset(MIN_CAPACITY);
+        return cache;
+    }
+
+    /**
+     * @return whether versions are known for these tags, in this order
+     */
+    boolean isFor(@Nonnull List<String> tagRefNames) {
+        return refNames.equals(tagRefNames);
+    }
+
+    /**
+     * Brings the cache up to date with the given tags.
+     *
+     * @param parents     where the parents of newly labeled commits are read from
+     * @param tagRefNames sorted from oldest to newest
+     * @param tagCommits  the commit of each tag, in the same order, or null where a tag has none
+     * @return the number of commits which were labeled
+     */
+    synchronized int update(@Nonnull CommitParents parents, @Nonnull List<String> tagRefNames,
+                            @Nonnull List<? extends AnyObjectId> tagCommits) throws IOException {
+        List<String> current = new ArrayList<>();
+        for (int i = 0; i < tagRefNames.size(); i++) {
+            AnyObjectId commit = tagCommits.get(i);
+            current.add((commit == null ? ObjectId.zeroId() : commit).name() + " " + tagRefNames.get(i));
+        }
+
+        int known = 0;
+        while (known < manifest.size() && known < current.size() && manifest.get(known).equals(current.get(known))) {
+            known++;
+        }
+
+        int labeled = 0;
+        if (known < manifest.size() || known < current.size()) {
+            // Until the new manifest is written, the table doesn't match any manifest
+            Files.deleteIfExists(dir.resolve(MANIFEST));
+            if (known < manifest.size()) {
+                // A tag was moved, removed or put before a known one
+                known = 0;
+                reset(MIN_CAPACITY);
+            }
+            for (int i = known; i < current.size(); i++) {
+                labeled += label(parents, tagCommits.get(i), i);
+            }
+            table.force();
+            writeManifest(current);
+        }
+
+        List<String> names = new ArrayList<>(tagRefNames);
+        List<String> tagVersions = new ArrayList<>();
+        for (String name : names) {
+            tagVersions.add(name.substring(1 + name.lastIndexOf('/')));
+        }
+        versions = tagVersions;
+        refNames = names;
+        return labeled;
+    }
+
+    @Nonnull
+    String getVersionOf(@Nonnull AnyObjectId commit, @Nonnull String fallback) {
+        int ordinal = get(table, commit);
+        return ordinal < 0 ? fallback : versions.get(ordinal);
+    }
+
+    /**
+     * Labels the tip and its ancestors which are not labeled yet. Labeled commits have labeled ancestors, so the walk
+     * stops there.
+     */
+    private int label(@Nonnull CommitParents parents, @Nullable AnyObjectId tip, int ordinal) throws IOException {
+        if (tip == null || get(table, tip) >= 0) {
+            return 0;
+        }
+        put(tip, ordinal);
+        int labeled = 1;
+        Deque<AnyObjectId> pending = new ArrayDeque<>();
+        pending.push(tip);
+        while (!pending.isEmpty()) {
+            for (ObjectId parent : parents.get(pending.pop())) {
+                if (get(table, parent) < 0) {
+                    put(parent, ordinal);
+                    labeled++;
+                    pending.push(parent);
+                }
+            }
+        }
+        return labeled;
+    }
+
+    /**
+     * @return the ordinal of the commit's version, or -1 if it has none
+     */
+    private static int get(@Nonnull ByteBuffer table, @Nonnull AnyObjectId commit) {
+        int capacity = table.getInt(4);
+        for (int slot = commit.hashCode() & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+            int position = HEADER_SIZE + slot * SLOT_SIZE;
+            int value = table.getInt(position + ID_LENGTH);
+            if (value == 0) {
+                return -1;
+            }
+            if (idEquals(table, position, commit)) {
+                return value - 1;
+            }
+        }
+    }
+
+    private void put(@Nonnull AnyObjectId commit, int ordinal) throws IOException {
+        // Keep the table at most two thirds full, so that probes stay short
+        if (3 * (size + 1) > 2 * table.getInt(4)) {
+            grow();
+        }
+        insert(table, commit, ordinal + 1);
+        size++;
+        table.putInt(8, size);
+    }
+
+    private static void insert(@Nonnull ByteBuffer table, @Nonnull AnyObjectId commit, int value) {
+        int capacity = table.getInt(4);
+        int slot = commit.hashCode() & (capacity - 1);
+        while (table.getInt(HEADER_SIZE + slot * SLOT_SIZE + ID_LENGTH) != 0) {
+            slot = (slot + 1) & (capacity - 1);
+        }
+        int position = HEADER_SIZE + slot * SLOT_SIZE;
+        for (int i = 0; i < ID_LENGTH; i++) {
+            table.put(position + i, (byte) commit.getByte(i));
+        }
+        table.putInt(position + ID_LENGTH, value);
+    }
+
+    private static boolean idEquals(@Nonnull ByteBuffer table, int position, @Nonnull AnyObjectId commit) {
+        for (int i = 0; i < ID_LENGTH; i++) {
+            if (table.get(position + i) != (byte) commit.getByte(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves every entry into a table twice the size, which then replaces the old file. A mapping stays valid after its
+     * channel is closed, so the channel of the new file is opened again once it is in place.
+     */
+    private void grow() throws IOException {
+        MappedByteBuffer old = table;
+        int oldCapacity = old.getInt(4);
+        Path temp = Files.createTempFile(dir, TABLE, ".tmp");
+        try (FileChannel grown = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer bigger = create(grown, 2 * oldCapacity);
+            byte[] id = new byte[ID_LENGTH];
+            for (int slot = 0; slot < oldCapacity; slot++) {
+                int position = HEADER_SIZE + slot * SLOT_SIZE;
+                int value = old.getInt(position + ID_LENGTH);
+                if (value != 0) {
+                    for (int i = 0; i < ID_LENGTH; i++) {
+                        id[i] = old.get(position + i);
+                    }
+                    insert(bigger, ObjectId.fromRaw(id), value);
+                }
+            }
+            bigger.putInt(8, size);
+            bigger.force();
+            channel.close();
+            Files.move(temp, dir.resolve(TABLE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            table = bigger;
+            channel = FileChannel.open(dir.resolve(TABLE), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void reset(int capacity) throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        channel = FileChannel.open(dir.resolve(TABLE), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        table = create(channel, capacity);
+        size = 0;
+        manifest = Collections.emptyList();
+    }
+
+    @Nonnull
+    private static MappedByteBuffer create(@Nonnull FileChannel channel, int capacity) throws IOException {
+        // Mapping past the end grows the file, with zeros, which are empty slots
+        MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                HEADER_SIZE + (long) capacity * SLOT_SIZE);
+        table.putInt(0, MAGIC);
+        table.putInt(4, capacity);
+        table.putInt(8, 0);
+        return table;
+    }
+
+    private void writeManifest(@Nonnull List<String> lines) throws IOException {
+        Path temp = Files.createTempFile(dir, MANIFEST, ".tmp");
+        try {
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            Files.move(temp, dir.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        manifest = lines;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        table.force();
+        channel.close();
+    }
+}
@@ -0,0 +1,248 @@
+package org.neo4j.changelog.github;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the change log line of a pull request body in a single pass, without copying the body. It gives the same
+ * results as the regular expressions which bodies used to be parsed with:
+ *
+ * <pre>
+ * change log line, case insensitive and multiline:  ^(cl|changelog)\b[\s:]*(.*)$
+ * message of what follows:                          ^(?:\[.*?\])?\s*(.*?)\s*$
+ * metadata of what follows:                         ^\[(.*?)\]
+ * versions among the metadata:                      ^\s*\d+\.\d+\s*$
+ * </pre>
+ *
+ * The comments below give the part of the patterns which each step stands in for.
+ */
+final class ChangeLogScanner {
+
+    /**
+     * What follows "cl:" or "changelog:" in a body.
+     */
+    static final class Entry {
+        /**
+         * The text after the metadata, without surrounding whitespace.
+         */
+        final String message;
+        final List<String> versions = new ArrayList<>();
+        final List<String> labels = new ArrayList<>();
+
+        private Entry(@Nonnull String message) {
+            this.message = message;
+        }
+    }
+
+    private ChangeLogScanner() {
+    }
+
+    /**
+     * @return the change log entry of the body, or null if it has none
+     */
+    @Nullable
+    static Entry scan(@Nonnull String body) {
+        int length = body.length();
+        for (int line = 0; line < length; line = nextLine(body, line)) {
+            int end = matchKeyword(body, line);
+            if (end >= 0) {
+                // [\s:]*
+                int rest = end;
+                while (rest < length && (isSpace(body.charAt(rest)) || body.charAt(rest) == ':')) {
+                    rest++;
+                }
+                return entry(body, rest);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param rest where the text after the "changelog:" starts, up to the end of the body
+     */
+    @Nonnull
+    private static Entry entry(@Nonnull String body, int rest) {
+        int length = body.length();
+
+        // ^\[(.*?)\] without DOTALL: the first ']', with no line breaks before it
+        int metaEnd = -1;
+        if (rest < length && body.charAt(rest) == '[') {
+            metaEnd = body.indexOf(']', rest + 1);
+        }
+
+        // ^(?:\[.*?\])?\s* with DOTALL
+        int start = metaEnd >= 0 ? metaEnd + 1 : rest;
+        while (start < length && isSpace(body.charAt(start))) {
+            start++;
+        }
+
+        // (.*?)\s*$ where $ also matches before a line terminator which ends the input
+        int end = trimSpaceEnd(body, start, length);
+        if (length > start && isTerminatorOnly(body.charAt(length - 1))) {
+            end = Math.min(end, trimSpaceEnd(body, start, length - 1));
+        }
+
+        Entry entry = new Entry(body.substring(start, end));
+        if (metaEnd >= 0 && !containsTerminator(body, rest + 1, metaEnd)) {
+            addMetadata(body, rest + 1, metaEnd, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Splits the metadata on commas, into versions and labels.
+     */
+    private static void addMetadata(@Nonnull String body, int from, int to, @Nonnull Entry entry) {
+        int partStart = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to || body.charAt(i) == ',') {
+                int trimmedStart = partStart;
+                int trimmedEnd = i;
+                // String.trim()
+                while (trimmedStart < trimmedEnd && body.charAt(trimmedStart) <= ' ') {
+                    trimmedStart++;
+                }
+                while (trimmedEnd > trimmedStart && body.charAt(trimmedEnd - 1) <= ' ') {
+                    trimmedEnd--;
+                }
+
+                if (isVersion(body, partStart, i)) {
+                    entry.versions.add(body.substring(trimmedStart, trimmedEnd));
+                } else if (trimmedStart < trimmedEnd) {
+                    entry.labels.add(body.substring(trimmedStart, trimmedEnd));
+                }
+                partStart = i + 1;
+            }
+        }
+    }
+
+    /**
+     * ^\s*\d+\.\d+\s*$
+     */
+    private static boolean isVersion(@Nonnull String body, int from, int to) {
+        int i = from;
+        while (i < to && isSpace(body.charAt(i))) {
+            i++;
+        }
+        int digits = i;
+        while (i < to && isDigit(body.charAt(i))) {
+            i++;
+        }
+        if (i == digits || i == to || body.charAt(i) != '.') {
+            return false;
+        }
+        i++;
+        digits = i;
+        while (i < to && isDigit(body.charAt(i))) {
+            i++;
+        }
+        if (i == digits) {
+            return false;
+        }
+        while (i < to && isSpace(body.charAt(i))) {
+            i++;
+        }
+        return i == to;
+    }
+
+    /**
+     * (cl|changelog)\b, case insensitive for ASCII only
+     *
+     * @return the end of the keyword, or -1 if there is none at the given position
+     */
+    private static int matchKeyword(@Nonnull String body, int at) {
+        int end;
+        if (startsWithIgnoreCase(body, at, "cl")) {
+            end = at + 2;
+        } else if (startsWithIgnoreCase(body, at, "changelog")) {
+            end = at + 9;
+        } else {
+            return -1;
+        }
+        return end < body.length() && isWord(body.codePointAt(end)) ? -1 : end;
+    }
+
+    private static boolean startsWithIgnoreCase(@Nonnull String body, int at, @Nonnull String lowerCase) {
+        if (at + lowerCase.length() > body.length()) {
+            return false;
+        }
+        for (int i = 0; i < lowerCase.length(); i++) {
+            char c = body.charAt(at + i);
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            }
+            if (c != lowerCase.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * ^ with MULTILINE: the start of the next line, where \r\n counts as one line break
+     */
+    private static int nextLine(@Nonnull String body, int line) {
+        int length = body.length();
+        for (int i = line + 1; i < length; i++) {
+            char previous = body.charAt(i - 1);
+            if (isTerminator(previous) && !(previous == '\r' && body.charAt(i) == '\n')) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @return the start of the whitespace which ends the range
+     */
+    private static int trimSpaceEnd(@Nonnull String body, int from, int to) {
+        while (to > from && isSpace(body.charAt(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    private static boolean containsTerminator(@Nonnull String body, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (isTerminator(body.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * \b after a word: the word goes on through letters, digits, underscores and combining marks
+     */
+    private static boolean isWord(int codePoint) {
+        return codePoint == '_' || Character.isLetterOrDigit(codePoint)
+                || Character.getType(codePoint) == Character.NON_SPACING_MARK;
+    }
+
+    /**
+     * \s
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * \d
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isTerminator(char c) {
+        return c == '\n' || c == '\r' || isTerminatorOnly(c);
+    }
+
+    /**
+     * Line terminators which are not also \s
+     */
+    private static boolean isTerminatorOnly(char c) {
+        return c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
@@ -0,0 +1,68 @@
+package org.neo4j.changelog.github;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide HTTP state for talking to GitHub. Every service is built on the same client, so the main project and
+ * the sub projects share one connection pool and one dispatcher, and reuse each other's warm connections. Every
+ * cache directory is written by a single cache.
+ */
+final class GitHubClients {
+    private static OkHttpClient client = null;
+    private static final Map<File, RevalidationCache> caches = new HashMap<>();
+
+    private GitHubClients() {
+    }
+
+    /**
+     * Interceptors which differ between repositories, such as the token, go on a {@link OkHttpClient#newBuilder()} of
+     * this client, which keeps the pool and the dispatcher.
+     *
+     * @param maxRequests how many asynchronous requests may run at once. The dispatcher allows as many as the most
+     *                    any caller has asked for. They run on their own threads, apart from the common fork join pool.
+     */
+    @Nonnull
+    static synchronized OkHttpClient getClient(int maxRequests) {
+        if (client == null) {
+            Dispatcher dispatcher = new Dispatcher(Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "GitHub I/O");
+                thread.setDaemon(true);
+                return thread;
+            }));
+            dispatcher.setMaxRequests(maxRequests);
+            dispatcher.setMaxRequestsPerHost(maxRequests);
+            client = new OkHttpClient.Builder().dispatcher(dispatcher).connectionPool(new ConnectionPool()).build();
+        }
+
+        Dispatcher dispatcher = client.dispatcher();
+        if (dispatcher.getMaxRequests() < maxRequests) {
+            dispatcher.setMaxRequests(maxRequests);
+            dispatcher.setMaxRequestsPerHost(maxRequests);
+        }
+        return client;
+    }
+
+    /**
+     * @param maxSize in bytes, only used by the first caller for a directory
+     * @return the one cache of the directory
+     */
+    @Nonnull
+    static synchronized RevalidationCache getCache(@Nonnull File directory, long maxSize) {
+        File key;
+        try {
+            key = directory.getCanonicalFile();
+        } catch (IOException e) {
+            key = directory.getAbsoluteFile();
+        }
+        return caches.computeIfAbsent(key, dir -> new RevalidationCache(dir, maxSize));
+    }
+}
@@ -1,19 +1,28 @@
 package org.neo4j.changelog.github;
 
 import org.neo4j.changelog.Change;
+import org.neo4j.changelog.ChangeRecord;
 import org.neo4j.changelog.Util;
+import org.neo4j.changelog.config.GithubConfig;
 import org.neo4j.changelog.config.GithubLabelsConfig;
 import retrofit2.Call;
+import retrofit2.Callback;
 import retrofit2.Response;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.OptionalInt;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
 
 
@@ -21,22 +30,53 @@ import java.util.stream.Collectors;
  * Miscellaneous utility functions related to GitHub specific things.
  */
 public class GitHubHelper {
-    private static Pattern PAGE_PATTERN = Pattern.compile("page=([0-9]+)>");
-
     private final GitHubService service;
+    private final Paginator paginator = new Paginator();
     private final String user;
     private final String repo;
     @Nonnull
     private final GithubLabelsConfig labels;
     private final boolean includeAuthor;
+    private final int maxRequests;
+    private final boolean bulkFetch;
+    @Nullable
+    private final Path storeFile;
+    private final boolean rebuildStore;
+    @Nullable
+    private final GraphQLBackend graphQL;
+
+    public GitHubHelper(@Nonnull GithubConfig config) {
+        this(config, RevalidationCache.from(config), new RateLimiter(config.getMaxRequests()));
+    }
+
+    /**
+     * @param cache   revalidates responses cached on disk, or null to not cache anything
+     * @param limiter keeps requests within the rate limit, and may be shared with other helpers to share the limit
+     */
+    public GitHubHelper(@Nonnull GithubConfig config, @Nullable RevalidationCache cache,
+                        @Nonnull RateLimiter limiter) {
+        this(GitHubService.GetService(GitHubService.API_URL, config.getToken(), null, config.getMaxRequests(),
+                cache, limiter), config);
+    }
 
-    public GitHubHelper(@Nonnull String token, @Nonnull String user, @Nonnull String repo, boolean includeAuthor,
-                        @Nonnull GithubLabelsConfig labels) {
-        service = GitHubService.GetService(token);
-        this.user = user;
-        this.repo = repo;
-        this.labels = labels;
-        this.includeAuthor = includeAuthor;
+    /**
+     * Everything but how to reach GitHub is read from the config, so new settings don't change the constructors.
+     */
+    GitHubHelper(@Nonnull GitHubService service, @Nonnull GithubConfig config) {
+        this.service = service;
+        this.user = config.getUser();
+        this.repo = config.getRepo();
+        this.labels = config.getLabels();
+        this.includeAuthor = config.getIncludeAuthor();
+        this.maxRequests = config.getMaxRequests();
+        this.bulkFetch = config.getBulkFetch();
+        // Where pull requests are stored between runs, or null to always fetch everything
+        this.storeFile = config.getStoreDir().isEmpty() ? null
+                : Paths.get(config.getStoreDir(), user + "-" + repo + ".json");
+        this.rebuildStore = config.getRebuildStore();
+        // The GraphQL API fetches merged pull requests directly, and ignores the store
+        this.graphQL = GithubConfig.BACKEND_GRAPHQL.equals(config.getBackend())
+                ? new GraphQLBackend(service, user, repo) : null;
 
         if (!labels.getVersionPrefix().isEmpty() && !Util.isSemanticVersion(labels.getVersionPrefix())) {
             throw new IllegalArgumentException("version_prefix is not a semantic version: '"
@@ -58,125 +98,236 @@ public class GitHubHelper {
         return false;
     }
 
+    /**
+     * @param category where the change goes, see {@link org.neo4j.changelog.ChangeLog#getCategoryFor}
+     */
     @Nonnull
-    public static Change convertToChange(@Nonnull PullRequest pr, @Nonnull String version) {
-        return new Change() {
-            @Override
-            public int getSortingNumber() {
-                return pr.getNumber();
-            }
+    public static Change convertToChange(@Nonnull PullRequest pr, @Nonnull String version, @Nonnull String category) {
+        return new ChangeRecord(pr.getNumber(), pr.getChangeText(), version, pr.getLabelFilter(), category);
+    }
 
-            @Nonnull
-            @Override
-            public List<String> getLabels() {
-                return pr.getLabelFilter();
-            }
+    @Nonnull
+    public List<PullRequest> getChangeLogPullRequests() {
+        if (graphQL != null || storeFile != null) {
+            return (graphQL != null ? getMergedPullRequests() : syncStore()).stream()
+                              .filter(r -> isCandidate(r.labels))
+                              .map(r -> r.toPullRequest(labels.getCategoryMap(), includeAuthor))
+                              .filter(pr -> isIncludedInVersion(pr, labels.getVersionPrefix()))
+                              .collect(Collectors.toList());
+        }
 
-            @Nonnull
-            @Override
-            public String getVersion() {
-                return version;
-            }
+        // Only consider pull requests, not issues, and only those with the right labels
+        List<GitHubService.Issue> candidates = listChangeLogIssues(new IssueDecoder(true, this::isCandidate));
+        System.out.println("Fetched " + candidates.size() + " candidate pull requests");
+        candidates.sort(Comparator.comparingInt(i -> i.number));
+
+        List<GitHubService.PR> prs = bulkFetch ? joinPrs(candidates) : await(getPrs(candidates));
 
-            @Override
-            public String toString() {
-                return pr.getChangeText();
+        List<PullRequest> pullRequests = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            PRIssue pr = new PRIssue(candidates.get(i), prs.get(i), labels.getCategoryMap(), includeAuthor);
+            if (isIncludedInVersion(pr, labels.getVersionPrefix())) {
+                pullRequests.add(pr);
             }
-        };
+        }
+        return pullRequests;
+    }
+
+    private boolean isCandidate(@Nonnull List<String> labelNames) {
+        // Can not have any of the exclusion labels
+        return Collections.disjoint(labels.getExclude(), labelNames) &&
+                // Can only be unlabeled if that is allowed
+                !(labels.getExcludeUnlabeled() && labelNames.isEmpty()) &&
+                // Must contain one of the inclusion labels, if any are specified
+                (labels.getInclude().isEmpty() || !Collections.disjoint(labels.getInclude(), labelNames));
     }
 
     @Nonnull
-    public List<PullRequest> getChangeLogPullRequests() {
-        List<GitHubService.Issue> issues = listChangeLogIssues();
+    private static List<String> getLabelNames(@Nonnull GitHubService.Issue issue) {
+        return issue.labels.stream().map(l -> l.name).collect(Collectors.toList());
+    }
+
+    /**
+     * Brings the store up to date. The first time, every closed issue with the required labels is fetched. After
+     * that, only issues which were updated since the last run are fetched, whatever their state and labels, since
+     * a pull request may have lost its labels. Issues which no longer qualify are dropped from the store.
+     *
+     * @return every stored pull request, by number
+     */
+    @Nonnull
+    private List<PullRequestStore.Record> syncStore() {
+        PullRequestStore store = PullRequestStore.open(storeFile, user, repo, labels.getRequired(), rebuildStore);
+        String since = store.getSince();
+
+        List<GitHubService.Issue> issues;
+        if (since == null) {
+            System.out.printf("Building pull request store %s\n", storeFile);
+            issues = listChangeLogIssues(new IssueDecoder(false, labelNames -> true));
+        } else {
+            issues = listIssuesSince(since);
+        }
         System.out.println("Fetched " + issues.size() + " issues");
 
-        return issues.parallelStream()
-                     // Only consider pull requests, not issues
-                     .filter(i -> i.pull_request != null)
-                     // Can not have any of the exclusion labels
-                     .filter(i -> Collections.disjoint(labels.getExclude(),
-                             i.labels.stream().map(l -> l.name).collect(Collectors.toList())))
-                     // Can only be unlabeled if that is allowed
-                     .filter(i -> !(labels.getExcludeUnlabeled() && i.labels.isEmpty()))
-                     // Must contain one of the inclusion labels
-                     .filter(i -> {
-                         // either the no inclusion labels have been specified
-                         return labels.getInclude().isEmpty() ||
-                                 // or one of the labels are present in the inclusion list
-                                 !Collections.disjoint(labels.getInclude(),
-                                         i.labels.stream().map(l -> l.name).collect(Collectors.toList()));
-                     })
-                     .map(issue -> {
-                         GitHubService.PR pr = getPr(issue.number);
-                         return new PRIssue(issue, pr, labels.getCategoryMap(), includeAuthor);
-                     })
-                     .filter(pr -> isIncludedInVersion(pr, labels.getVersionPrefix()))
-                     .collect(Collectors.toList());
+        List<GitHubService.Issue> changed = new ArrayList<>();
+        for (GitHubService.Issue issue : issues) {
+            store.advanceSince(issue.updated_at);
+            if (isStorable(issue)) {
+                changed.add(issue);
+            } else {
+                store.remove(issue.number);
+            }
+        }
+
+        // Listing all pull requests only pays off when most of them are needed
+        List<GitHubService.PR> prs = bulkFetch && since == null ? joinPrs(changed) : await(getPrs(changed));
+        for (int i = 0; i < changed.size(); i++) {
+            store.put(PullRequestStore.Record.of(changed.get(i), prs.get(i)));
+        }
+
+        try {
+            store.save();
+        } catch (IOException e) {
+            System.err.printf("\nWarning: Could not save pull request store %s: %s\n", storeFile, e.getMessage());
+        }
+        return store.getRecords();
+    }
+
+    private boolean isStorable(@Nonnull GitHubService.Issue issue) {
+        if (issue.pull_request == null || (issue.state != null && !"closed".equals(issue.state))) {
+            return false;
+        }
+        return getLabelNames(issue).containsAll(getRequiredLabels());
     }
 
     @Nonnull
-    private GitHubService.PR getPr(int number) {
-        try {
-            Call<GitHubService.PR> call = service.getPR(user, repo, number);
-            Response<GitHubService.PR> response = call.execute();
-            if (response.isSuccessful()) {
-                return response.body();
+    private List<String> getRequiredLabels() {
+        List<String> required = new ArrayList<>();
+        for (String label : labels.getRequired().split(",")) {
+            if (!label.trim().isEmpty()) {
+                required.add(label.trim());
             }
-            throw new RuntimeException(response.message());
+        }
+        return required;
+    }
+
+    @Nonnull
+    private List<PullRequestStore.Record> getMergedPullRequests() {
+        try {
+            List<PullRequestStore.Record> records = graphQL.getMergedPullRequests(getRequiredLabels());
+            System.out.println("Fetched " + records.size() + " merged pull requests");
+            return records;
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Matches the issues with the listing of closed pull requests, which costs one request per 100 pull requests.
+     * Only the ones which are not listed are requested one by one.
+     *
+     * @return the pull requests, in the same order as the issues
+     */
     @Nonnull
-    private List<GitHubService.Issue> listChangeLogIssues() {
-        List<GitHubService.Issue> issues = new LinkedList<>();
+    private List<GitHubService.PR> joinPrs(@Nonnull List<GitHubService.Issue> issues) {
+        Map<Integer, GitHubService.PR> byNumber = new HashMap<>();
+        for (GitHubService.PR pr : listPrs()) {
+            byNumber.put(pr.number, pr);
+        }
+        System.out.println("Listed " + byNumber.size() + " pull requests");
 
-        OptionalInt nextPage = OptionalInt.of(1);
-        while (nextPage.isPresent()) {
-            //noinspection OptionalGetWithoutIsPresent (while statement is not picked up by intellij)
-            Response<List<GitHubService.Issue>> response = listChangeLogIssues(nextPage.getAsInt());
-            issues.addAll(response.body());
-            nextPage = getNextPage(response);
+        List<GitHubService.Issue> missing = issues.stream()
+                                                  .filter(i -> !byNumber.containsKey(i.number))
+                                                  .collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            System.out.println("Fetching " + missing.size() + " unlisted pull requests one by one");
+            List<GitHubService.PR> fetched = await(getPrs(missing));
+            for (int i = 0; i < missing.size(); i++) {
+                byNumber.put(missing.get(i).number, fetched.get(i));
+            }
         }
 
-        return issues;
+        return issues.stream().map(i -> byNumber.get(i.number)).collect(Collectors.toList());
     }
 
     @Nonnull
-    private Response<List<GitHubService.Issue>> listChangeLogIssues(int page) {
+    private List<GitHubService.Issue> listIssuesSince(@Nonnull String since) {
         try {
-            Call<List<GitHubService.Issue>> call = service.listChangeLogIssues(user, repo, labels.getRequired(), page);
-            Response<List<GitHubService.Issue>> response = call.execute();
-            if (response.isSuccessful()) {
-                return response;
-            }
-            throw new RuntimeException(response.message());
+            return paginator.fetchAll(page -> service.listIssuesSince(user, repo, since, page),
+                    new IssueDecoder(false, labelNames -> true));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Nonnull
+    private List<GitHubService.PR> listPrs() {
+        try {
+            return paginator.fetchAll(page -> service.listPRs(user, repo, page));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Requests the pull request of every issue asynchronously, with at most maxRequests in flight. Blocks while that
+     * many are in flight.
+     *
+     * @return the pull requests, in the same order as the issues
+     */
     @Nonnull
-    private OptionalInt getNextPage(@Nonnull Response result) {
-        if (result.headers().get("Link") != null) {
-            String link = result.headers().get("Link");
-            String parsedPage = null;
-            for (String part : link.split(",")) {
-                for (String piece : part.split(";")) {
-                    if ("rel=\"next\"".equals(piece.trim()) && parsedPage != null) {
-                        // Previous piece pointed to next
-                        return OptionalInt.of(Integer.parseInt(parsedPage));
-                    } else if (piece.contains("&page=")) {
-                        Matcher match = PAGE_PATTERN.matcher(piece);
-                        if (match.find()) {
-                            parsedPage = match.group(1);
-                        }
+    CompletableFuture<List<GitHubService.PR>> getPrs(@Nonnull List<GitHubService.Issue> issues) {
+        Semaphore inFlight = new Semaphore(maxRequests);
+        List<CompletableFuture<GitHubService.PR>> futures = new ArrayList<>(issues.size());
+
+        for (GitHubService.Issue issue : issues) {
+            CompletableFuture<GitHubService.PR> future = new CompletableFuture<>();
+            futures.add(future);
+            inFlight.acquireUninterruptibly();
+            service.getPR(user, repo, issue.number).enqueue(new Callback<GitHubService.PR>() {
+                @Override
+                public void onResponse(Call<GitHubService.PR> call, Response<GitHubService.PR> response) {
+                    inFlight.release();
+                    if (response.isSuccessful()) {
+                        future.complete(response.body());
+                    } else {
+                        future.completeExceptionally(new RuntimeException(response.message()));
                     }
                 }
+
+                @Override
+                public void onFailure(Call<GitHubService.PR> call, Throwable t) {
+                    inFlight.release();
+                    future.completeExceptionally(t);
+                }
+            });
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                                .thenApply(done -> futures.stream()
+                                                          .map(CompletableFuture::join)
+                                                          .collect(Collectors.toList()));
+    }
+
+    @Nonnull
+    private static <T> T await(@Nonnull CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Nonnull
+    private List<GitHubService.Issue> listChangeLogIssues(@Nonnull IssueDecoder decoder) {
+        try {
+            return paginator.fetchAll(page -> service.listChangeLogIssues(user, repo, labels.getRequired(), page),
+                    decoder);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
-        return OptionalInt.empty();
     }
 
     public GitHubService getService() {
@@ -1,6 +1,7 @@
 package org.neo4j.changelog.github;
 
 import okhttp3.*;
+import org.neo4j.changelog.config.GithubConfig;
 import retrofit2.Call;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
@@ -9,24 +10,44 @@ import retrofit2.http.*;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import java.io.File;
 import java.util.List;
 
 public interface GitHubService {
     String API_URL = "https://api.github.com";
 
+    /**
+     * Pages are decoded by {@link IssueDecoder}, which only builds the issues and fields which are used.
+     */
+    @Streaming
     @GET("/repos/{user}/{repo}/issues?filter=all&state=closed&per_page=100")
-    Call<List<Issue>> listChangeLogIssues(@Path("user") String user,
+    Call<ResponseBody> listChangeLogIssues(@Path("user") String user,
                                           @Path("repo") String repo,
                                           @Query("labels") String labels,
                                           @Query("page") int page);
 
+    /**
+     * Every issue and pull request, whatever its state and labels, which was updated at or after the given time.
+     * Pages are decoded by {@link IssueDecoder}.
+     */
+    @Streaming
+    @GET("/repos/{user}/{repo}/issues?filter=all&state=all&sort=updated&direction=asc&per_page=100")
+    Call<ResponseBody> listIssuesSince(@Path("user") String user,
+                                      @Path("repo") String repo,
+                                      @Query("since") String since,
+                                      @Query("page") int page);
+
     @GET("/repos/{user}/{repo}/pulls/{number}")
     Call<PR> getPR(@Path("user") String user, @Path("repo") String repo, @Path("number") int number);
 
     @GET("/repos/{user}/{repo}/pulls?state=closed&per_page=100")
     Call<List<PR>> listPRs(@Path("user") String user, @Path("repo") String repo, @Query("page") int page);
 
+    /**
+     * See {@link GraphQLBackend}.
+     */
+    @POST("/graphql")
+    Call<GraphQLBackend.Result> graphql(@Body GraphQLBackend.Query query);
+
     @PATCH("/repos/{user}/{repo}/issues/{number}")
     Call<Issue> editIssueLabels(@Path("user") String user, @Path("repo") String repo, @Path("number") int number, @Body IssueLabels issue);
 
@@ -43,18 +64,31 @@ public interface GitHubService {
     }
 
     static GitHubService GetService(@Nonnull String url, @Nonnull String token, @Nullable final Interceptor interceptor) {
+        return GetService(url, token, interceptor, GithubConfig.DEFAULT_MAX_REQUESTS);
+    }
+
+    /**
+     * @param maxRequests how many asynchronous requests may run at once, see {@link GitHubClients#getClient(int)}
+     */
+    static GitHubService GetService(@Nonnull String url, @Nonnull String token, @Nullable final Interceptor interceptor,
+                                    int maxRequests) {
+        return GetService(url, token, interceptor, maxRequests, null, null);
+    }
+
+    /**
+     * @param cache   revalidates responses cached on disk, or null to not cache anything
+     * @param limiter keeps requests within the rate limit and retries them, or null to fail on the first error
+     */
+    static GitHubService GetService(@Nonnull String url, @Nonnull String token, @Nullable final Interceptor interceptor,
+                                    int maxRequests, @Nullable RevalidationCache cache,
+                                    @Nullable RateLimiter limiter) {
 
         if (!url.endsWith("/")) {
             url += "/";
         }
 
-        File cacheDir = new File(".okhttpcache");
-        if (!cacheDir.isDirectory() && !cacheDir.mkdir()) {
-            throw new RuntimeException("Failed to create cache directory");
-        }
-        Cache cache = new Cache(cacheDir, 1024 * 1024 * 10);
-
-        OkHttpClient.Builder httpBuilder = new OkHttpClient.Builder().cache(cache);
+        // Shares the connection pool and the dispatcher with every other service
+        OkHttpClient.Builder httpBuilder = GitHubClients.getClient(maxRequests).newBuilder();
 
         if (!token.isEmpty()) {
             httpBuilder.addInterceptor(chain -> {
@@ -68,6 +102,16 @@ public interface GitHubService {
             });
         }
 
+        // After the token, which is part of what is cached
+        if (cache != null) {
+            httpBuilder.addInterceptor(cache);
+        }
+
+        // Retries stay out of the cache, which only sees the final response
+        if (limiter != null) {
+            httpBuilder.addInterceptor(limiter);
+        }
+
         if (interceptor != null) {
             httpBuilder.addInterceptor(interceptor);
         }
@@ -90,6 +134,8 @@ public interface GitHubService {
         public User user;
         public List<Label> labels;
         public UrlHolder pull_request;
+        public String state;
+        public String updated_at;
     }
 
     class PR {
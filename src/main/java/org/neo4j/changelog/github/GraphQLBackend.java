@@ -0,0 +1,159 @@
+package org.neo4j.changelog.github;
+
+import retrofit2.Response;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Fetches merged pull requests through the GraphQL API, 100 at a time, with only the fields which the change log
+ * needs. The REST API takes a page of issues and then one request per pull request for the same information.
+ */
+class GraphQLBackend {
+    static final int PAGE_SIZE = 100;
+    static final String QUERY = "query($owner: String!, $name: String!, $labels: [String!], $cursor: String) {" +
+            " repository(owner: $owner, name: $name) {" +
+            " pullRequests(states: MERGED, labels: $labels, first: " + PAGE_SIZE + ", after: $cursor," +
+            " orderBy: {field: CREATED_AT, direction: ASC}) {" +
+            " pageInfo { hasNextPage endCursor }" +
+            " nodes { number title body url mergedAt headRefOid baseRefOid" +
+            " author { login url } labels(first: 100) { nodes { name } } } } } }";
+
+    private final GitHubService service;
+    private final String user;
+    private final String repo;
+
+    static class Query {
+        String query;
+        Map<String, Object> variables = new HashMap<>();
+    }
+
+    static class Result {
+        Data data;
+        List<Error> errors;
+    }
+
+    static class Error {
+        String message;
+    }
+
+    static class Data {
+        Repository repository;
+    }
+
+    static class Repository {
+        Connection<PullRequestNode> pullRequests;
+    }
+
+    static class Connection<T> {
+        PageInfo pageInfo;
+        List<T> nodes;
+    }
+
+    static class PageInfo {
+        boolean hasNextPage;
+        String endCursor;
+    }
+
+    static class PullRequestNode {
+        int number;
+        String title;
+        String body;
+        String url;
+        String mergedAt;
+        String headRefOid;
+        String baseRefOid;
+        Author author;
+        Connection<LabelNode> labels;
+    }
+
+    static class Author {
+        String login;
+        String url;
+    }
+
+    static class LabelNode {
+        String name;
+    }
+
+    GraphQLBackend(@Nonnull GitHubService service, @Nonnull String user, @Nonnull String repo) {
+        this.service = service;
+        this.user = user;
+        this.repo = repo;
+    }
+
+    /**
+     * GitHub only filters on any of a list of labels, so the first required label is given to GitHub, and the rest
+     * are checked here.
+     *
+     * @param requiredLabels labels which every pull request must have
+     * @return every merged pull request with the required labels, by number
+     */
+    @Nonnull
+    List<PullRequestStore.Record> getMergedPullRequests(@Nonnull List<String> requiredLabels) throws IOException {
+        Query query = new Query();
+        query.query = QUERY;
+        query.variables.put("owner", user);
+        query.variables.put("name", repo);
+        if (!requiredLabels.isEmpty()) {
+            query.variables.put("labels", requiredLabels.subList(0, 1));
+        }
+
+        List<PullRequestStore.Record> records = new ArrayList<>();
+        String cursor = null;
+        do {
+            query.variables.put("cursor", cursor);
+            Connection<PullRequestNode> page = fetch(query);
+            for (PullRequestNode node : page.nodes) {
+                PullRequestStore.Record record = toRecord(node);
+                if (record.labels.containsAll(requiredLabels)) {
+                    records.add(record);
+                }
+            }
+            cursor = page.pageInfo.hasNextPage ? page.pageInfo.endCursor : null;
+        } while (cursor != null);
+
+        records.sort((a, b) -> Integer.compare(a.number, b.number));
+        return records;
+    }
+
+    @Nonnull
+    private Connection<PullRequestNode> fetch(@Nonnull Query query) throws IOException {
+        Response<Result> response = service.graphql(query).execute();
+        if (!response.isSuccessful()) {
+            throw new RuntimeException(response.errorBody() == null ? response.message()
+                    : response.errorBody().string());
+        }
+        Result result = response.body();
+        if (result.errors != null && !result.errors.isEmpty()) {
+            throw new RuntimeException(result.errors.stream().map(e -> e.message).collect(Collectors.joining("\n")));
+        }
+        if (result.data == null || result.data.repository == null) {
+            throw new RuntimeException(String.format("No repository %s/%s", user, repo));
+        }
+        return result.data.repository.pullRequests;
+    }
+
+    @Nonnull
+    private static PullRequestStore.Record toRecord(@Nonnull PullRequestNode node) {
+        PullRequestStore.Record record = new PullRequestStore.Record();
+        record.number = node.number;
+        record.title = node.title;
+        record.body = node.body;
+        record.html_url = node.url;
+        record.merged_at = node.mergedAt;
+        record.head = node.headRefOid;
+        record.base = node.baseRefOid;
+        // Deleted accounts have no author
+        record.author = node.author == null ? "ghost" : node.author.login;
+        record.author_url = node.author == null ? null : node.author.url;
+        record.labels = node.labels == null ? new ArrayList<>()
+                : node.labels.nodes.stream().map(l -> l.name).collect(Collectors.toList());
+        return record;
+    }
+}
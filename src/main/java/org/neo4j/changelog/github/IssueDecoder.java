@@ -0,0 +1,172 @@
+package org.neo4j.changelog.github;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import okhttp3.ResponseBody;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Decodes a page of issues while it is read. Only the fields which are used are kept; titles, bodies and the rest are
+ * skipped without being built. Issues are filtered as they are decoded: once the labels of an issue are rejected, the
+ * rest of it is skipped too.
+ */
+class IssueDecoder implements Paginator.PageDecoder<GitHubService.Issue> {
+    private final boolean pullRequestsOnly;
+    private final Predicate<List<String>> labelFilter;
+
+    /**
+     * @param pullRequestsOnly true to drop issues which are not pull requests
+     * @param labelFilter      given the label names of an issue, decides if it is kept
+     */
+    IssueDecoder(boolean pullRequestsOnly, @Nonnull Predicate<List<String>> labelFilter) {
+        this.pullRequestsOnly = pullRequestsOnly;
+        this.labelFilter = labelFilter;
+    }
+
+    @Nonnull
+    @Override
+    public List<GitHubService.Issue> decode(@Nonnull ResponseBody body) throws IOException {
+        return decode(body.charStream());
+    }
+
+    @Nonnull
+    List<GitHubService.Issue> decode(@Nonnull Reader in) throws IOException {
+        List<GitHubService.Issue> issues = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(in)) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                GitHubService.Issue issue = readIssue(reader);
+                if (issue != null) {
+                    issues.add(issue);
+                }
+            }
+            reader.endArray();
+        }
+        return issues;
+    }
+
+    /**
+     * @return the issue, or null if it was filtered out
+     */
+    @Nullable
+    private GitHubService.Issue readIssue(@Nonnull JsonReader reader) throws IOException {
+        GitHubService.Issue issue = new GitHubService.Issue();
+        boolean rejected = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (rejected || reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "number":
+                    issue.number = reader.nextInt();
+                    break;
+                case "state":
+                    issue.state = reader.nextString();
+                    break;
+                case "updated_at":
+                    issue.updated_at = reader.nextString();
+                    break;
+                case "user":
+                    issue.user = readUser(reader);
+                    break;
+                case "pull_request":
+                    issue.pull_request = readUrl(reader);
+                    break;
+                case "labels":
+                    issue.labels = readLabels(reader);
+                    rejected = !labelFilter.test(labelNames(issue.labels));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (rejected || (pullRequestsOnly && issue.pull_request == null)) {
+            return null;
+        }
+        if (issue.labels == null) {
+            issue.labels = new ArrayList<>();
+            if (!labelFilter.test(new ArrayList<>())) {
+                return null;
+            }
+        }
+        return issue;
+    }
+
+    @Nonnull
+    private static GitHubService.User readUser(@Nonnull JsonReader reader) throws IOException {
+        GitHubService.User user = new GitHubService.User();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+            } else if (name.equals("login")) {
+                user.login = reader.nextString();
+            } else if (name.equals("html_url")) {
+                user.html_url = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return user;
+    }
+
+    @Nonnull
+    private static GitHubService.UrlHolder readUrl(@Nonnull JsonReader reader) throws IOException {
+        GitHubService.UrlHolder holder = new GitHubService.UrlHolder();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("url") && reader.peek() != JsonToken.NULL) {
+                holder.url = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return holder;
+    }
+
+    @Nonnull
+    private static List<GitHubService.Label> readLabels(@Nonnull JsonReader reader) throws IOException {
+        List<GitHubService.Label> labels = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            GitHubService.Label label = new GitHubService.Label();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("name") && reader.peek() != JsonToken.NULL) {
+                    label.name = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            labels.add(label);
+        }
+        reader.endArray();
+        return labels;
+    }
+
+    @Nonnull
+    private static List<String> labelNames(@Nonnull List<GitHubService.Label> labels) {
+        List<String> names = new ArrayList<>(labels.size());
+        for (GitHubService.Label label : labels) {
+            names.add(label.name);
+        }
+        return names;
+    }
+}
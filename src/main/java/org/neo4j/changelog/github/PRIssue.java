@@ -7,18 +7,10 @@ import javax.annotation.Nonnull;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class PRIssue implements PullRequest {
 
-    public static final Pattern CHANGELOG_PATTERN = Pattern.compile("^(cl|changelog)\\b[\\s:]*(.*)$",
-            Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
-    public static final Pattern METADATA_PATTERN = Pattern.compile("^\\[(.*?)\\]");
-    public static final Pattern VERSION_PATTERN = Pattern.compile("^\\s*\\d+\\.\\d+\\s*$");
-    public static final Pattern MESSAGE_PATTERN = Pattern.compile("^(?:\\[.*?\\])?\\s*(.*?)\\s*$", Pattern.DOTALL);
-
     final int number;
     final String title;
     final String body;
@@ -98,42 +90,22 @@ public class PRIssue implements PullRequest {
             changeText = addAuthor(changeText);
         }
 
-        Matcher matcher = CHANGELOG_PATTERN.matcher(body);
-        if (matcher.find()) {
-
-            String rest = matcher.group(2);
-
+        ChangeLogScanner.Entry entry = ChangeLogScanner.scan(body);
+        if (entry != null) {
             // Look for custom message
-            Matcher msgMatch = MESSAGE_PATTERN.matcher(rest);
-
-            if (msgMatch.find()) {
-                String msg = msgMatch.group(1);
-                if (!msg.trim().isEmpty()) {
-                    if (includeAuthor) {
-                        changeText = Util.formatChangeText(msg,
-                                String.format("[\\#%d](%s)", number, html_url),
-                                String.format("([%s](%s))", username, userlink));
-                    } else {
-                        changeText = Util.formatChangeText(msg,
-                                String.format("[\\#%d](%s)", number, html_url));
-                    }
+            if (!entry.message.trim().isEmpty()) {
+                if (includeAuthor) {
+                    changeText = Util.formatChangeText(entry.message,
+                            String.format("[\\#%d](%s)", number, html_url),
+                            String.format("([%s](%s))", username, userlink));
+                } else {
+                    changeText = Util.formatChangeText(entry.message,
+                            String.format("[\\#%d](%s)", number, html_url));
                 }
             }
 
-            // Look for meta data
-            Matcher metaMatch = METADATA_PATTERN.matcher(rest);
-            if (metaMatch.find()) {
-                String meta = metaMatch.group(1);
-                String[] metaParts = meta.split(",");
-
-                for (String metaPart : metaParts) {
-                    if (isVersion(metaPart)) {
-                        versionFilter.add(metaPart.trim());
-                    } else if (!metaPart.trim().isEmpty()) {
-                        labelFilter.add(metaPart.trim());
-                    }
-                }
-            }
+            versionFilter.addAll(entry.versions);
+            labelFilter.addAll(entry.labels);
         }
 
         if (labelFilter.isEmpty()) {
@@ -141,10 +113,6 @@ public class PRIssue implements PullRequest {
         }
     }
 
-    private boolean isVersion(@Nonnull String meta) {
-        return VERSION_PATTERN.asPredicate().test(meta);
-    }
-
     @Nonnull
     @Override
     public String getChangeText() {
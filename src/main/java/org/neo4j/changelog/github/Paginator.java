@@ -0,0 +1,240 @@
+package org.neo4j.changelog.github;
+
+import okhttp3.Headers;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fetches all pages of a GitHub listing. The first response links to the last page, so the rest of the pages are
+ * fetched concurrently, and put back together in page order. Listings which don't link to their last page are
+ * followed one page at a time.
+ *
+ * Concurrent pages are enqueued on the client's shared dispatcher, see {@link GitHubClients}, and decoded on its
+ * threads as they arrive.
+ */
+class Paginator {
+    static final int DEFAULT_PARALLELISM = 4;
+    private static final Pattern PAGE_PATTERN = Pattern.compile("[?&]page=([0-9]+)");
+    private static final Pattern REL_PATTERN = Pattern.compile("rel=\"([^\"]+)\"");
+
+    private final int parallelism;
+
+    interface PageRequest<T> {
+        @Nonnull
+        Call<List<T>> page(int page);
+    }
+
+    /**
+     * A listing whose pages are decoded by the caller.
+     */
+    interface RawPageRequest {
+        @Nonnull
+        Call<ResponseBody> page(int page);
+    }
+
+    interface PageDecoder<T> {
+        @Nonnull
+        List<T> decode(@Nonnull ResponseBody body) throws IOException;
+    }
+
+    private interface PageReader<R, T> {
+        @Nonnull
+        Page<T> read(@Nonnull Response<R> response) throws IOException;
+    }
+
+    /**
+     * Makes the call for a page, and reads its response.
+     */
+    private static class PageFetcher<R, T> {
+        private final IntFunction<Call<R>> calls;
+        private final PageReader<R, T> reader;
+
+        PageFetcher(@Nonnull IntFunction<Call<R>> calls, @Nonnull PageReader<R, T> reader) {
+            this.calls = calls;
+            this.reader = reader;
+        }
+
+        @Nonnull
+        Page<T> fetch(int page) throws IOException {
+            return reader.read(checked(calls.apply(page).execute()));
+        }
+
+        void enqueue(int page, @Nonnull Semaphore inFlight, @Nonnull CompletableFuture<Page<T>> result) {
+            calls.apply(page).enqueue(new Callback<R>() {
+                @Override
+                public void onResponse(Call<R> call, Response<R> response) {
+                    try {
+                        result.complete(reader.read(checked(response)));
+                    } catch (IOException | RuntimeException e) {
+                        result.completeExceptionally(e);
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+
+                @Override
+                public void onFailure(Call<R> call, Throwable t) {
+                    inFlight.release();
+                    result.completeExceptionally(t);
+                }
+            });
+        }
+    }
+
+    private static class Page<T> {
+        final List<T> items;
+        final Map<String, Integer> links;
+
+        Page(@Nonnull List<T> items, @Nonnull Headers headers) {
+            this.items = items;
+            this.links = parseLinks(headers.get("Link"));
+        }
+    }
+
+    Paginator() {
+        this(DEFAULT_PARALLELISM);
+    }
+
+    Paginator(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    @Nonnull
+    <T> List<T> fetchAll(@Nonnull PageRequest<T> request) throws IOException {
+        return fetchPages(new PageFetcher<>(request::page,
+                response -> new Page<>(response.body(), response.headers())));
+    }
+
+    /**
+     * Pages are decoded on the threads which fetch them, as they are read.
+     */
+    @Nonnull
+    <T> List<T> fetchAll(@Nonnull RawPageRequest request, @Nonnull PageDecoder<T> decoder) throws IOException {
+        return fetchPages(new PageFetcher<>(request::page, response -> {
+            try (ResponseBody body = response.body()) {
+                return new Page<>(decoder.decode(body), response.headers());
+            }
+        }));
+    }
+
+    @Nonnull
+    private <T> List<T> fetchPages(@Nonnull PageFetcher<?, T> fetcher) throws IOException {
+        Page<T> first = fetcher.fetch(1);
+        List<T> items = new ArrayList<>(first.items);
+        Map<String, Integer> links = first.links;
+
+        int page = 1;
+        Integer last = links.get("last");
+        if (last != null && last > 1) {
+            for (Page<T> response : fetchConcurrently(fetcher, 2, last)) {
+                items.addAll(response.items);
+                links = response.links;
+            }
+            page = last;
+        }
+
+        // Pages which were added while fetching, or a listing without a last page
+        Integer next = links.get("next");
+        while (next != null && next > page) {
+            Page<T> response = fetcher.fetch(next);
+            items.addAll(response.items);
+            page = next;
+            next = response.links.get("next");
+        }
+        return items;
+    }
+
+    /**
+     * At most parallelism pages are in flight, blocks while that many are.
+     */
+    @Nonnull
+    private <T> List<Page<T>> fetchConcurrently(@Nonnull PageFetcher<?, T> fetcher, int from, int to)
+            throws IOException {
+        Semaphore inFlight = new Semaphore(parallelism);
+        List<CompletableFuture<Page<T>>> futures = new ArrayList<>();
+        for (int page = from; page <= to; page++) {
+            CompletableFuture<Page<T>> future = new CompletableFuture<>();
+            futures.add(future);
+            inFlight.acquireUninterruptibly();
+            fetcher.enqueue(page, inFlight, future);
+        }
+
+        List<Page<T>> pages = new ArrayList<>();
+        for (CompletableFuture<Page<T>> future : futures) {
+            pages.add(await(future));
+        }
+        return pages;
+    }
+
+    @Nonnull
+    private static <T> Response<T> checked(@Nonnull Response<T> response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new RuntimeException(response.errorBody() == null ? response.message()
+                    : response.errorBody().string());
+        }
+        return response;
+    }
+
+    private static <T> T await(@Nonnull Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * Parses a header like: &lt;https://api.github.com/...&amp;page=2&gt;; rel="next", &lt;...&amp;page=5&gt;; rel="last"
+     *
+     * @return the page number of each relation
+     */
+    @Nonnull
+    static Map<String, Integer> parseLinks(String header) {
+        Map<String, Integer> pages = new HashMap<>();
+        if (header == null) {
+            return pages;
+        }
+        for (String link : header.split(",")) {
+            int end = link.indexOf('>');
+            if (end < 0) {
+                continue;
+            }
+            Matcher page = PAGE_PATTERN.matcher(link.substring(0, end));
+            Matcher rel = REL_PATTERN.matcher(link.substring(end));
+            if (page.find() && rel.find()) {
+                pages.put(rel.group(1), Integer.parseInt(page.group(1)));
+            }
+        }
+        return pages;
+    }
+}
@@ -0,0 +1,160 @@
+package org.neo4j.changelog.github;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Local copy of the closed pull requests of one repository, so that later runs only have to ask GitHub about what
+ * was updated since the last run. Holds every closed pull request with the required labels, whatever the other label
+ * filters are, so that changing those filters does not require a rebuild.
+ */
+class PullRequestStore {
+    private static final Gson GSON = new Gson();
+
+    private final Path file;
+    private final Contents contents;
+
+    /**
+     * A pull request, with the parts of its issue which are needed for the change log.
+     */
+    static class Record {
+        int number;
+        String title;
+        String body;
+        String html_url;
+        String merged_at;
+        String head;
+        String base;
+        String author;
+        String author_url;
+        List<String> labels;
+
+        @Nonnull
+        static Record of(@Nonnull GitHubService.Issue issue, @Nonnull GitHubService.PR pr) {
+            Record record = new Record();
+            record.number = issue.number;
+            record.title = pr.title;
+            record.body = pr.body;
+            record.html_url = pr.html_url;
+            record.merged_at = pr.merged_at;
+            record.head = pr.head.sha;
+            record.base = pr.base.sha;
+            record.author = issue.user.login;
+            record.author_url = issue.user.html_url;
+            record.labels = issue.labels.stream().map(l -> l.name).collect(Collectors.toList());
+            return record;
+        }
+
+        @Nonnull
+        PRIssue toPullRequest(@Nonnull Map<String, String> categoryMap, boolean includeAuthor) {
+            return new PRIssue(number, title, body, html_url, author, author_url, merged_at, head, base,
+                    labels.stream().map(l -> categoryMap.getOrDefault(l, l)).collect(Collectors.toList()),
+                    includeAuthor);
+        }
+    }
+
+    private static class Contents {
+        String user;
+        String repo;
+        String required;
+        // Greatest updated_at seen, in GitHub's ISO 8601 format which sorts as text
+        String since;
+        Map<Integer, Record> records = new TreeMap<>();
+    }
+
+    private PullRequestStore(@Nonnull Path file, @Nonnull Contents contents) {
+        this.file = file;
+        this.contents = contents;
+    }
+
+    /**
+     * Opens the store in the file. It starts out empty if the file does not exist, can not be read, was made for
+     * another repository or other required labels, or if a rebuild is asked for.
+     */
+    @Nonnull
+    static PullRequestStore open(@Nonnull Path file, @Nonnull String user, @Nonnull String repo,
+                                 @Nonnull String required, boolean rebuild) {
+        Contents contents = null;
+        if (!rebuild && Files.isRegularFile(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                contents = GSON.fromJson(reader, Contents.class);
+            } catch (IOException | JsonParseException e) {
+                System.err.printf("\nWarning: Ignoring unreadable pull request store %s: %s\n", file, e.getMessage());
+            }
+        }
+        if (contents == null || contents.records == null || !user.equals(contents.user)
+                || !repo.equals(contents.repo) || !required.equals(contents.required)) {
+            contents = new Contents();
+            contents.user = user;
+            contents.repo = repo;
+            contents.required = required;
+        }
+        return new PullRequestStore(file, contents);
+    }
+
+    /**
+     * @return the high-water mark, or null if the store has never been filled
+     */
+    @Nullable
+    String getSince() {
+        return contents.since;
+    }
+
+    void advanceSince(@Nullable String updatedAt) {
+        if (updatedAt != null && (contents.since == null || updatedAt.compareTo(contents.since) > 0)) {
+            contents.since = updatedAt;
+        }
+    }
+
+    void put(@Nonnull Record record) {
+        contents.records.put(record.number, record);
+    }
+
+    void remove(int number) {
+        contents.records.remove(number);
+    }
+
+    /**
+     * @return all records, by number
+     */
+    @Nonnull
+    List<Record> getRecords() {
+        List<Record> records = new ArrayList<>(contents.records.values());
+        records.sort(Comparator.comparingInt(r -> r.number));
+        return records;
+    }
+
+    /**
+     * Writes to a temporary file first, so that a failed write leaves the previous store in place.
+     */
+    void save() throws IOException {
+        Path dir = Objects.requireNonNull(file.toAbsolutePath().getParent());
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                GSON.toJson(contents, writer);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
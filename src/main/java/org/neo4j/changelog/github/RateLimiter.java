@@ -0,0 +1,190 @@
+package org.neo4j.changelog.github;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Schedules requests to GitHub within the rate limit. Fewer requests are let through at once as the remaining budget
+ * shrinks, and none once it is used up, until GitHub resets it. Responses which say the limit was hit, or that GitHub
+ * had trouble, are retried after the time GitHub asks for, or else after a jittered exponential backoff.
+ *
+ * One instance can be shared by several clients, which then share one budget.
+ */
+public class RateLimiter implements Interceptor {
+    static final int MAX_RETRIES = 5;
+    // Requests left in the budget for every request which is let through at once
+    static final int BUDGET_PER_REQUEST = 50;
+    private static final long BASE_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 60 * 1000;
+
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    private final int maxConcurrency;
+    private final Sleeper sleeper;
+    private final LongSupplier clock;
+    private final Random random;
+
+    private int inFlight = 0;
+    // Unknown until the first response
+    private int remaining = -1;
+    private long resetAtMillis = 0;
+    private final AtomicInteger retries = new AtomicInteger();
+
+    public RateLimiter(int maxConcurrency) {
+        this(maxConcurrency, Thread::sleep, System::currentTimeMillis, new Random());
+    }
+
+    RateLimiter(int maxConcurrency, @Nonnull Sleeper sleeper, @Nonnull LongSupplier clock, @Nonnull Random random) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1: " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.sleeper = sleeper;
+        this.clock = clock;
+        this.random = random;
+    }
+
+    /**
+     * @return number of requests which were sent again
+     */
+    public int getRetryCount() {
+        return retries.get();
+    }
+
+    /**
+     * @return number of requests which are let through at once with the budget as it is now
+     */
+    synchronized int getConcurrency() {
+        if (remaining < 0) {
+            return maxConcurrency;
+        }
+        return Math.max(1, Math.min(maxConcurrency, remaining / BUDGET_PER_REQUEST));
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        for (int attempt = 0; ; attempt++) {
+            awaitReset();
+            acquire();
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } finally {
+                release();
+            }
+            update(response);
+
+            long delay = getRetryDelay(response, attempt);
+            if (delay < 0) {
+                return response;
+            }
+            response.body().close();
+            retries.incrementAndGet();
+            System.err.printf("\nWarning: GitHub answered %d %s for %s, retrying in %d s\n", response.code(),
+                    response.message(), request.url(), (delay + 999) / 1000);
+            sleep(delay);
+        }
+    }
+
+    /**
+     * @return milliseconds to wait before sending the request again, or -1 if the response should be kept
+     */
+    long getRetryDelay(@Nonnull Response response, int attempt) {
+        int code = response.code();
+        if (attempt >= MAX_RETRIES || !(code == 403 || code == 429 || code >= 500)) {
+            return -1;
+        }
+
+        Long retryAfter = parseLong(response.header("Retry-After"));
+        if (retryAfter != null) {
+            return retryAfter * 1000;
+        }
+        Long reset = parseLong(response.header("X-RateLimit-Reset"));
+        if ("0".equals(response.header("X-RateLimit-Remaining")) && reset != null) {
+            return Math.max(0, reset * 1000 - clock.getAsLong()) + BASE_BACKOFF_MILLIS;
+        }
+        if (code == 403) {
+            // Not about the rate limit, so asking again will not help
+            return -1;
+        }
+
+        // Half fixed, half random, so that concurrent requests spread out
+        long backoff = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << attempt);
+        return backoff / 2 + (long) (random.nextDouble() * (backoff / 2));
+    }
+
+    private void awaitReset() throws IOException {
+        long wait;
+        synchronized (this) {
+            wait = remaining == 0 ? resetAtMillis - clock.getAsLong() : 0;
+        }
+        if (wait > 0) {
+            sleep(wait);
+        }
+    }
+
+    private synchronized void acquire() throws IOException {
+        try {
+            while (inFlight >= getConcurrency()) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the rate limit");
+        }
+        inFlight++;
+    }
+
+    private synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    private synchronized void update(@Nonnull Response response) {
+        Long newRemaining = parseLong(response.header("X-RateLimit-Remaining"));
+        Long reset = parseLong(response.header("X-RateLimit-Reset"));
+        if (newRemaining == null || reset == null) {
+            return;
+        }
+        if (newRemaining == 0 && remaining != 0) {
+            System.err.printf("\nWarning: GitHub rate limit used up, waiting until it resets in %d s\n",
+                    Math.max(0, reset - clock.getAsLong() / 1000));
+        }
+        remaining = newRemaining.intValue();
+        resetAtMillis = reset * 1000;
+        notifyAll();
+    }
+
+    private void sleep(long millis) throws IOException {
+        try {
+            sleeper.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the rate limit");
+        }
+    }
+
+    @Nullable
+    private static Long parseLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package org.neo4j.changelog.github;
+
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ByteString;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+import org.neo4j.changelog.config.GithubConfig;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Remembers the ETag and Last-Modified of GitHub responses on disk, and sends them along when the same url is
+ * requested again. GitHub answers 304 Not Modified if nothing changed, which does not count against the rate limit,
+ * and the stored response is used instead. Once the cache grows beyond its size, the least recently used responses
+ * are evicted.
+ *
+ * Bodies are never held in memory as a whole. They are copied to the cache as they are read, and served from the
+ * cache file as they are read, so that streamed listings stay streamed.
+ */
+public class RevalidationCache implements Interceptor {
+    private static final String SUFFIX = ".entry";
+    // The body runs until the end of the file, so that it can be written before its length is known
+    private static final int FORMAT = 2;
+
+    private final File directory;
+    private final long maxSize;
+    // File name to size in bytes, least recently used first
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger revalidated = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    private static class Entry {
+        final Headers headers;
+        // Positioned at the start of the body
+        final InputStream body;
+
+        Entry(@Nonnull Headers headers, @Nonnull InputStream body) {
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+
+    /**
+     * @param maxSize in bytes
+     */
+    public RevalidationCache(@Nonnull File directory, long maxSize) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new RuntimeException("Failed to create cache directory " + directory);
+        }
+        this.directory = directory;
+        this.maxSize = maxSize;
+
+        // Files are touched when used, so their modification time gives back the order of use
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files != null) {
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for (File file : files) {
+                entries.put(file.getName(), file.length());
+                size += file.length();
+            }
+        }
+        evict();
+    }
+
+    /**
+     * @return the cache configured for GitHub, shared with everyone else using the same directory, or null if caching
+     * is turned off
+     */
+    @Nullable
+    public static RevalidationCache from(@Nonnull GithubConfig config) {
+        if (config.getCacheSize() == 0) {
+            return null;
+        }
+        return GitHubClients.getCache(new File(config.getCacheDir()), config.getCacheSize() * 1024L * 1024L);
+    }
+
+    /**
+     * @return number of requests which GitHub answered with 304 Not Modified, and which were served from the cache
+     */
+    public int getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of requests which were cached, but which GitHub answered with new content
+     */
+    public int getRevalidatedCount() {
+        return revalidated.get();
+    }
+
+    /**
+     * @return number of requests which were not cached
+     */
+    public int getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!"GET".equals(request.method())) {
+            return chain.proceed(request);
+        }
+
+        String name = nameOf(request);
+        Entry cached = read(name, request);
+        if (cached == null) {
+            misses.incrementAndGet();
+            return store(name, chain.proceed(request));
+        }
+
+        Request.Builder conditional = request.newBuilder();
+        String etag = cached.headers.get("ETag");
+        if (etag != null) {
+            conditional.header("If-None-Match", etag);
+        }
+        String lastModified = cached.headers.get("Last-Modified");
+        if (lastModified != null) {
+            conditional.header("If-Modified-Since", lastModified);
+        }
+
+        Response response;
+        try {
+            response = chain.proceed(conditional.build());
+        } catch (IOException | RuntimeException e) {
+            cached.body.close();
+            throw e;
+        }
+        if (response.code() != 304) {
+            cached.body.close();
+            revalidated.incrementAndGet();
+            return store(name, response);
+        }
+
+        hits.incrementAndGet();
+        touch(name);
+        response.body().close();
+
+        // Fresh headers, such as the rate limit, take precedence over the stored ones
+        Headers.Builder headers = cached.headers.newBuilder();
+        for (String header : response.headers().names()) {
+            headers.removeAll(header);
+            for (String value : response.headers(header)) {
+                headers.add(header, value);
+            }
+        }
+        String contentType = cached.headers.get("Content-Type");
+        return response.newBuilder()
+                       .code(200)
+                       .message("OK")
+                       .headers(headers.build())
+                       .body(ResponseBody.create(contentType == null ? null : MediaType.parse(contentType), -1,
+                               Okio.buffer(Okio.source(cached.body))))
+                       .build();
+    }
+
+    @Nonnull
+    private Response store(@Nonnull String name, @Nonnull Response response) throws IOException {
+        if (response.code() != 200 || (response.header("ETag") == null && response.header("Last-Modified") == null)) {
+            return response;
+        }
+
+        ResponseBody body = response.body();
+        Path temp = Files.createTempFile(directory.toPath(), name, ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)));
+            writeHeaders(out, response.request().url().toString(), response.headers());
+        } catch (IOException e) {
+            System.err.printf("\nWarning: Could not cache %s: %s\n", response.request().url(), e.getMessage());
+            if (out != null) {
+                out.close();
+            }
+            Files.deleteIfExists(temp);
+            return response;
+        }
+        Source source = new CachingSource(body.source(), name, temp, out, response.request().url().toString());
+        return response.newBuilder()
+                       .body(ResponseBody.create(body.contentType(), body.contentLength(), Okio.buffer(source)))
+                       .build();
+    }
+
+    /**
+     * Copies the body to a temporary file as it is read. Only a body which was read to the end becomes an entry.
+     * Whatever is left when the body is closed is read first, since a parser may stop at the end of the JSON.
+     */
+    private class CachingSource extends ForwardingSource {
+        private final String name;
+        private final Path temp;
+        private final OutputStream out;
+        private final String url;
+        private boolean done = false;
+
+        CachingSource(@Nonnull Source source, @Nonnull String name, @Nonnull Path temp, @Nonnull OutputStream out,
+                      @Nonnull String url) {
+            super(source);
+            this.name = name;
+            this.temp = temp;
+            this.out = out;
+            this.url = url;
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            long read;
+            try {
+                read = super.read(sink, byteCount);
+            } catch (IOException e) {
+                abandon(null);
+                throw e;
+            }
+            if (done) {
+                return read;
+            }
+            try {
+                if (read == -1) {
+                    done = true;
+                    out.close();
+                    commit(name, temp);
+                } else {
+                    sink.copyTo(out, sink.size() - read, read);
+                }
+            } catch (IOException e) {
+                abandon(e);
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!done) {
+                Buffer rest = new Buffer();
+                try {
+                    while (read(rest, 8192) != -1) {
+                        rest.clear();
+                    }
+                } catch (IOException e) {
+                    // Not cached then
+                }
+            }
+            super.close();
+        }
+
+        private void abandon(@Nullable IOException e) {
+            if (done) {
+                return;
+            }
+            done = true;
+            if (e != null) {
+                System.err.printf("\nWarning: Could not cache %s: %s\n", url, e.getMessage());
+            }
+            try {
+                out.close();
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Only a temporary file left behind
+            }
+        }
+    }
+
+    @Nullable
+    private Entry read(@Nonnull String name, @Nonnull Request request) {
+        synchronized (this) {
+            if (!entries.containsKey(name)) {
+                return null;
+            }
+        }
+
+        File file = new File(directory, name);
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())));
+            if (in.readInt() != FORMAT || !in.readUTF().equals(request.url().toString())) {
+                in.close();
+                return null;
+            }
+            Headers.Builder headers = new Headers.Builder();
+            int headerCount = in.readInt();
+            for (int i = 0; i < headerCount; i++) {
+                headers.add(in.readUTF(), in.readUTF());
+            }
+            return new Entry(headers.build(), in);
+        } catch (IOException e) {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                    // Removed below anyway
+                }
+            }
+            remove(name);
+            return null;
+        }
+    }
+
+    private static void writeHeaders(@Nonnull DataOutputStream out, @Nonnull String url, @Nonnull Headers headers)
+            throws IOException {
+        out.writeInt(FORMAT);
+        out.writeUTF(url);
+        out.writeInt(headers.size());
+        for (int i = 0; i < headers.size(); i++) {
+            out.writeUTF(headers.name(i));
+            out.writeUTF(headers.value(i));
+        }
+    }
+
+    /**
+     * Moves a completely written entry into place. An entry larger than the whole cache is not kept, and neither is
+     * the one it replaces, whose ETag no longer matches what GitHub has.
+     */
+    private void commit(@Nonnull String name, @Nonnull Path temp) throws IOException {
+        try {
+            long length = Files.size(temp);
+            if (length > maxSize) {
+                remove(name);
+                return;
+            }
+            synchronized (this) {
+                Files.move(temp, new File(directory, name).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                Long previous = entries.put(name, length);
+                size += length - (previous == null ? 0 : previous);
+                evict();
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private synchronized void touch(@Nonnull String name) {
+        entries.get(name);
+        //noinspection ResultOfMethodCallIgnored
+        new File(directory, name).setLastModified(System.currentTimeMillis());
+    }
+
+    private synchronized void remove(@Nonnull String name) {
+        Long length = entries.remove(name);
+        if (length != null) {
+            size -= length;
+            //noinspection ResultOfMethodCallIgnored
+            new File(directory, name).delete();
+        }
+    }
+
+    private synchronized void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (size > maxSize && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            size -= entry.getValue();
+            eldest.remove();
+            //noinspection ResultOfMethodCallIgnored
+            new File(directory, entry.getKey()).delete();
+        }
+    }
+
+    /**
+     * Responses depend on who is asking, so the token is part of the name.
+     */
+    @Nonnull
+    private static String nameOf(@Nonnull Request request) {
+        String authorization = request.header("Authorization");
+        return ByteString.encodeUtf8(request.url() + "\n" + (authorization == null ? "" : authorization)).md5().hex()
+                + SUFFIX;
+    }
+}
@@ -0,0 +1,89 @@
+package org.neo4j.changelog.render;
+
+import org.neo4j.changelog.Change;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.regex.Pattern;
+
+/**
+ * Same layout as the Markdown, with the links in change texts written as AsciiDoc links. Everything else in change
+ * texts is written so that it can't be taken for AsciiDoc passthroughs, attributes or macros, which could otherwise
+ * put anything in the output.
+ */
+public class AsciiDocRenderer implements Renderer {
+    private static final Template VERSION_FMT = new Template("\n== %s\n\n");
+    private static final Template CATEGORY_FMT = new Template("\n=== %s\n\n");
+    // Such as pass:[...] and link:...[...]
+    private static final Pattern MACRO = Pattern.compile("(?<![:\\w])([a-zA-Z][\\w-]*):(?=\\S*\\[)");
+    private final Writer w;
+    private final InlineMarkdown.Sink sink;
+
+    public AsciiDocRenderer(@Nonnull Writer w) {
+        this.w = w;
+        sink = new InlineMarkdown.Sink() {
+            @Override
+            public void text(@Nonnull String text) throws IOException {
+                w.write(escape(text));
+            }
+
+            @Override
+            public void link(@Nonnull String label, @Nonnull String url) throws IOException {
+                w.write(escapeUrl(url));
+                w.write('[');
+                w.write(escape(label).replace("]", "\\]"));
+                w.write(']');
+            }
+        };
+    }
+
+    /**
+     * Plus signs are written as the {plus} attribute, since any number of them may start a passthrough, and doubled
+     * dollar signs are split by an empty attribute. Attribute references and macros are escaped with a backslash.
+     */
+    @Nonnull
+    private static String escape(@Nonnull String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '+') {
+                escaped.append("{plus}");
+            } else if (c == '{') {
+                escaped.append("\\{");
+            } else if (c == '$' && i + 1 < text.length() && text.charAt(i + 1) == '$') {
+                escaped.append("${empty}");
+            } else {
+                escaped.append(c);
+            }
+        }
+        return MACRO.matcher(escaped).replaceAll("\\\\$1:");
+    }
+
+    /**
+     * Characters which AsciiDoc would read as markup are percent encoded, which browsers read the same, except for a
+     * plus in a query.
+     */
+    @Nonnull
+    private static String escapeUrl(@Nonnull String url) {
+        return url.replace("+", "%2B").replace("[", "%5B").replace("]", "%5D").replace("{", "%7B")
+                  .replace("$", "%24");
+    }
+
+    @Override
+    public void beginVersion(@Nonnull String version) throws IOException {
+        VERSION_FMT.write(w, version);
+    }
+
+    @Override
+    public void beginCategory(@Nonnull String category) throws IOException {
+        CATEGORY_FMT.write(w, category);
+    }
+
+    @Override
+    public void change(@Nonnull Change change) throws IOException {
+        w.write("* ");
+        InlineMarkdown.convert(change.toString(), sink);
+        w.write('\n');
+    }
+}
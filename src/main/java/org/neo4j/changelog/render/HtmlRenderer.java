@@ -0,0 +1,87 @@
+package org.neo4j.changelog.render;
+
+import org.neo4j.changelog.Change;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * An HTML fragment, with a heading for each version and a list for each category, to be included in a page.
+ */
+public class HtmlRenderer implements Renderer {
+    private final Writer w;
+    private final InlineMarkdown.Sink sink;
+
+    public HtmlRenderer(@Nonnull Writer w) {
+        this.w = w;
+        sink = new InlineMarkdown.Sink() {
+            @Override
+            public void text(@Nonnull String text) throws IOException {
+                escape(text);
+            }
+
+            @Override
+            public void link(@Nonnull String label, @Nonnull String url) throws IOException {
+                w.write("<a href=\"");
+                escape(url);
+                w.write("\">");
+                escape(label);
+                w.write("</a>");
+            }
+        };
+    }
+
+    @Override
+    public void beginVersion(@Nonnull String version) throws IOException {
+        w.write("<h2>");
+        escape(version);
+        w.write("</h2>\n");
+    }
+
+    @Override
+    public void beginCategory(@Nonnull String category) throws IOException {
+        w.write("<h3>");
+        escape(category);
+        w.write("</h3>\n<ul>\n");
+    }
+
+    @Override
+    public void endCategory() throws IOException {
+        w.write("</ul>\n");
+    }
+
+    @Override
+    public void change(@Nonnull Change change) throws IOException {
+        w.write("<li>");
+        InlineMarkdown.convert(change.toString(), sink);
+        w.write("</li>\n");
+    }
+
+    private void escape(@Nonnull String text) throws IOException {
+        int last = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String entity;
+            switch (text.charAt(i)) {
+                case '&':
+                    entity = "&amp;";
+                    break;
+                case '<':
+                    entity = "&lt;";
+                    break;
+                case '>':
+                    entity = "&gt;";
+                    break;
+                case '"':
+                    entity = "&quot;";
+                    break;
+                default:
+                    continue;
+            }
+            w.write(text, last, i - last);
+            w.write(entity);
+            last = i + 1;
+        }
+        w.write(text, last, text.length() - last);
+    }
+}
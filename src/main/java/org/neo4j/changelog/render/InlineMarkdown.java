@@ -0,0 +1,53 @@
+package org.neo4j.changelog.render;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The Markdown which change texts contain: links such as "[\#123](https://...)", and backslash escapes. Everything
+ * else is passed on as text. Change texts come from pull request titles, which anyone can write, so only links to
+ * http and https urls are passed on as links. Other links, such as to javascript: urls, are passed on as text.
+ */
+final class InlineMarkdown {
+    private static final Pattern LINK = Pattern.compile("\\[((?:\\\\.|[^\\]\\\\])*)\\]\\(([^)\\s]*)\\)");
+    private static final Pattern ESCAPE = Pattern.compile("\\\\(\\p{Punct})");
+    private static final Pattern WEB_URL = Pattern.compile("^https?://", Pattern.CASE_INSENSITIVE);
+
+    interface Sink {
+        void text(@Nonnull String text) throws IOException;
+
+        void link(@Nonnull String label, @Nonnull String url) throws IOException;
+    }
+
+    private InlineMarkdown() {
+    }
+
+    /**
+     * Splits the Markdown into text and links, without the backslash escapes.
+     */
+    static void convert(@Nonnull String markdown, @Nonnull Sink sink) throws IOException {
+        Matcher m = LINK.matcher(markdown);
+        int last = 0;
+        while (m.find()) {
+            if (m.start() > last) {
+                sink.text(unescape(markdown.substring(last, m.start())));
+            }
+            if (WEB_URL.matcher(m.group(2)).find()) {
+                sink.link(unescape(m.group(1)), m.group(2));
+            } else {
+                sink.text(unescape(m.group()));
+            }
+            last = m.end();
+        }
+        if (last < markdown.length()) {
+            sink.text(unescape(markdown.substring(last)));
+        }
+    }
+
+    @Nonnull
+    static String unescape(@Nonnull String markdown) {
+        return markdown.indexOf('\\') < 0 ? markdown : ESCAPE.matcher(markdown).replaceAll("$1");
+    }
+}
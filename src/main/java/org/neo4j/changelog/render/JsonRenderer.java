@@ -0,0 +1,76 @@
+package org.neo4j.changelog.render;
+
+import com.google.gson.stream.JsonWriter;
+import org.neo4j.changelog.Change;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The versions, their categories and their changes, with the change texts as Markdown:
+ * <pre>
+ * {"versions": [{"version": "3.0.1", "categories": [{"category": "Kernel", "changes": [
+ *     {"text": "...", "number": 6935, "labels": ["kernel"]}]}]}]}
+ * </pre>
+ */
+public class JsonRenderer implements Renderer {
+    private final JsonWriter json;
+
+    public JsonRenderer(@Nonnull Writer w) {
+        json = new JsonWriter(w);
+        json.setIndent("  ");
+    }
+
+    @Override
+    public void beginChangeLog() throws IOException {
+        json.beginObject();
+        json.name("versions").beginArray();
+    }
+
+    @Override
+    public void beginVersion(@Nonnull String version) throws IOException {
+        json.beginObject();
+        json.name("version").value(version);
+        json.name("categories").beginArray();
+    }
+
+    @Override
+    public void endVersion() throws IOException {
+        json.endArray();
+        json.endObject();
+    }
+
+    @Override
+    public void beginCategory(@Nonnull String category) throws IOException {
+        json.beginObject();
+        json.name("category").value(category);
+        json.name("changes").beginArray();
+    }
+
+    @Override
+    public void endCategory() throws IOException {
+        json.endArray();
+        json.endObject();
+    }
+
+    @Override
+    public void change(@Nonnull Change change) throws IOException {
+        json.beginObject();
+        json.name("text").value(change.toString());
+        json.name("number").value(change.getSortingNumber());
+        json.name("labels").beginArray();
+        for (String label: change.getLabels()) {
+            json.value(label);
+        }
+        json.endArray();
+        json.endObject();
+    }
+
+    @Override
+    public void endChangeLog() throws IOException {
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+}
@@ -0,0 +1,36 @@
+package org.neo4j.changelog.render;
+
+import org.neo4j.changelog.Change;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The change texts are Markdown already, so they are written as they are.
+ */
+public class MarkdownRenderer implements Renderer {
+    private static final Template VERSION_FMT = new Template("\n## %s\n\n");
+    private static final Template CATEGORY_FMT = new Template("\n### %s\n\n");
+    private static final Template CHANGE_FMT = new Template("- %s\n");
+    private final Writer w;
+
+    public MarkdownRenderer(@Nonnull Writer w) {
+        this.w = w;
+    }
+
+    @Override
+    public void beginVersion(@Nonnull String version) throws IOException {
+        VERSION_FMT.write(w, version);
+    }
+
+    @Override
+    public void beginCategory(@Nonnull String category) throws IOException {
+        CATEGORY_FMT.write(w, category);
+    }
+
+    @Override
+    public void change(@Nonnull Change change) throws IOException {
+        CHANGE_FMT.write(w, change.toString());
+    }
+}
@@ -0,0 +1,31 @@
+package org.neo4j.changelog.render;
+
+import org.neo4j.changelog.Change;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+
+/**
+ * Writes one format of a change log. The change log calls it once for each version, category and change, in the
+ * order they are to be written, and only for versions and categories which have changes.
+ */
+public interface Renderer {
+
+    default void beginChangeLog() throws IOException {
+    }
+
+    void beginVersion(@Nonnull String version) throws IOException;
+
+    default void endVersion() throws IOException {
+    }
+
+    void beginCategory(@Nonnull String category) throws IOException;
+
+    default void endCategory() throws IOException {
+    }
+
+    void change(@Nonnull Change change) throws IOException;
+
+    default void endChangeLog() throws IOException {
+    }
+}
@@ -0,0 +1,36 @@
+package org.neo4j.changelog.render;
+
+import javax.annotation.Nonnull;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The formats which a change log can be written in, by the names used in the config.
+ */
+public final class Renderers {
+    public static final String MARKDOWN = "markdown";
+    public static final String ASCIIDOC = "asciidoc";
+    public static final String HTML = "html";
+    public static final String JSON = "json";
+    public static final List<String> FORMATS = Arrays.asList(MARKDOWN, ASCIIDOC, HTML, JSON);
+
+    private Renderers() {
+    }
+
+    @Nonnull
+    public static Renderer create(@Nonnull String format, @Nonnull Writer w) {
+        switch (format) {
+            case MARKDOWN:
+                return new MarkdownRenderer(w);
+            case ASCIIDOC:
+                return new AsciiDocRenderer(w);
+            case HTML:
+                return new HtmlRenderer(w);
+            case JSON:
+                return new JsonRenderer(w);
+            default:
+                throw new IllegalArgumentException("Unknown output format: " + format);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.neo4j.changelog.render;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A format with a single %s, split once so that writing it doesn't go through {@link String#format}.
+ */
+final class Template {
+    private final String prefix;
+    private final String suffix;
+
+    Template(@Nonnull String format) {
+        int at = format.indexOf("%s");
+        if (at < 0 || format.indexOf('%', at + 2) >= 0 || format.indexOf('%') != at) {
+            throw new IllegalArgumentException("Expected a single %s in: " + format);
+        }
+        prefix = format.substring(0, at);
+        suffix = format.substring(at + 2);
+    }
+
+    void write(@Nonnull Writer w, @Nonnull String value) throws IOException {
+        w.write(prefix);
+        w.write(value);
+        w.write(suffix);
+    }
+}
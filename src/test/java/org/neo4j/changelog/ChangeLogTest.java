@@ -2,18 +2,32 @@ package org.neo4j.changelog;
 
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.changelog.render.Renderers;
 
 import javax.annotation.Nonnull;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
 
 public class ChangeLogTest {
 
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
     @Test
     public void emptyCategoriesShouldBeLeftOut() throws Exception {
         ChangeLog cl = new ChangeLog(Arrays.asList(v100),
@@ -120,6 +134,102 @@ public class ChangeLogTest {
         assertEquals(SIMPLE_CHANGELOG, sw.toString());
     }
 
+    @Test
+    public void changesAddedConcurrentlyAreWrittenInTheSameOrder() throws Exception {
+        List<Change> changes = new ArrayList<>();
+        String[] labels = {"Kernel", "Cypher", "Other"};
+        for (int i = 0; i < 2000; i++) {
+            // Several changes share a number
+            changes.add(simpleChange(i / 3, labels[i % labels.length], "Change " + i));
+        }
+        ChangeLog expected = new ChangeLog(Arrays.asList(v100), Arrays.asList("Kernel", "Cypher"));
+        changes.forEach(expected::addToChangeLog);
+        StringWriter expectedWriter = new StringWriter();
+        expected.writeTo(expectedWriter);
+
+        Collections.shuffle(changes, new Random(42));
+        ChangeLog cl = new ChangeLog(Arrays.asList(v100), Arrays.asList("Kernel", "Cypher"));
+        changes.parallelStream().forEach(cl::addToChangeLog);
+        StringWriter sw = new StringWriter();
+        cl.writeTo(sw);
+
+        assertEquals(expectedWriter.toString(), sw.toString());
+    }
+
+    @Test
+    public void tiedNumbersAreWrittenAsBefore() throws Exception {
+        // Added in the order Main produces them, tied commit times first, then tied PR numbers of sub projects
+        ChangeLog cl = new ChangeLog(Arrays.asList(v100), Arrays.asList("Kernel", "Cypher", "browser", "docs"));
+        cl.addToChangeLog(simpleChange(1400000000, "Kernel", "Add an index [abc1234]"));
+        cl.addToChangeLog(simpleChange(1400000000, "Kernel", "Fix the index [def5678]"));
+        cl.addToChangeLog(simpleChange(7, "Cypher", "Add a query language [#7]"));
+        cl.addToChangeLog(simpleChange(3, "Cypher", "Add a parser [#3]"));
+        cl.addToChangeLog(simpleChange(7, "browser", "Show the query plan [#7]"));
+        cl.addToChangeLog(simpleChange(3, "browser", "Add a browser [#3]"));
+        cl.addToChangeLog(simpleChange(7, "docs", "Document the query plan [#7]"));
+
+        StringWriter sw = new StringWriter();
+        cl.writeTo(sw);
+
+        // As written by the String.format based writer
+        assertEquals("\n## 1.0.0\n\n" +
+                "\n### Kernel\n\n" +
+                "- Add an index [abc1234]\n" +
+                "- Fix the index [def5678]\n" +
+                "\n### Cypher\n\n" +
+                "- Add a parser [#3]\n" +
+                "- Add a query language [#7]\n" +
+                "\n### browser\n\n" +
+                "- Add a browser [#3]\n" +
+                "- Show the query plan [#7]\n" +
+                "\n### docs\n\n" +
+                "- Document the query plan [#7]\n", sw.toString());
+    }
+
+    @Test
+    public void writingDoesNotChangeTheChangeLog() throws Exception {
+        ChangeLog cl = new ChangeLog(Arrays.asList(v100), "Unreleased", Arrays.asList("Kernel", "Cypher"));
+        cl.addToChangeLog(simpleChange(3, "Kernel", "Fix the kernel [#3]"));
+        cl.addToChangeLog(simpleChange(2, "Changelog", "Added a changelog [#2]"));
+        cl.addToChangeLog(simpleChange(5, "misc", "Misc is not a category \u2713 [#5]"));
+
+        StringWriter first = new StringWriter();
+        cl.writeTo(first);
+        StringWriter second = new StringWriter();
+        cl.writeTo(second);
+        Path path = tmp.newFile("CHANGELOG.md").toPath();
+        cl.write(path);
+
+        assertEquals(first.toString(), second.toString());
+        assertEquals(first.toString(), new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+        assertEquals("\n## 1.0.0\n\n\n### Kernel\n\n- Fix the kernel [#3]\n" +
+                "\n### Misc\n\n- Added a changelog [#2]\n- Misc is not a category \u2713 [#5]\n", first.toString());
+    }
+
+    @Test
+    public void eachFormatIsWrittenToItsOwnFile() throws Exception {
+        ChangeLog cl = new ChangeLog(Arrays.asList(v100), Arrays.asList("Kernel", "Cypher"));
+        cl.addToChangeLog(simpleChange(3, "Kernel", "Fix the kernel [#3]"));
+        cl.addToChangeLog(simpleChange(4, "Cypher", "Add a query language [#4]"));
+        Map<String, Path> outputs = new LinkedHashMap<>();
+        for (String format: Renderers.FORMATS) {
+            outputs.put(format, tmp.getRoot().toPath().resolve("changelog." + format));
+        }
+
+        cl.write(outputs);
+
+        StringWriter sw = new StringWriter();
+        cl.writeTo(sw);
+        assertEquals(sw.toString(), new String(Files.readAllBytes(outputs.get(Renderers.MARKDOWN)),
+                StandardCharsets.UTF_8));
+        assertTrue(new String(Files.readAllBytes(outputs.get(Renderers.HTML)), StandardCharsets.UTF_8)
+                .contains("<h3>Cypher</h3>\n<ul>\n<li>Add a query language [#4]</li>"));
+        assertTrue(new String(Files.readAllBytes(outputs.get(Renderers.ASCIIDOC)), StandardCharsets.UTF_8)
+                .startsWith("\n== 1.0.0\n\n\n=== Kernel\n\n* Fix the kernel [#3]\n"));
+        assertTrue(new String(Files.readAllBytes(outputs.get(Renderers.JSON)), StandardCharsets.UTF_8)
+                .contains("\"text\": \"Add a query language [#4]\""));
+    }
+
     private Change simpleChange(int number, @Nonnull String label, @Nonnull String changeText) {
         return new Change() {
             @Override
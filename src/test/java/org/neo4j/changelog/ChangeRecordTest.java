@@ -0,0 +1,113 @@
+package org.neo4j.changelog;
+
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeRecordTest {
+
+    @Test
+    public void copyKeepsTheContents() throws Exception {
+        Change change = new SourceChange(new byte[0]);
+
+        ChangeRecord record = ChangeRecord.copyOf(change);
+
+        assertEquals(7, record.getSortingNumber());
+        assertEquals("Fixed a bug", record.toString());
+        assertEquals("1.0.0", record.getVersion());
+        assertEquals(Arrays.asList("Kernel", "bug"), record.getLabels());
+        assertEquals(new ChangeRecord(7, "Fixed a bug", "1.0.0", Arrays.asList("Kernel", "bug")), record);
+        assertSame(record, ChangeRecord.copyOf(record));
+    }
+
+    @Test
+    public void labelsAreCopied() throws Exception {
+        List<String> labels = new ArrayList<>(Collections.singletonList("Kernel"));
+
+        ChangeRecord record = new ChangeRecord(1, "text", "1.0.0", labels);
+        labels.add("Cypher");
+
+        assertEquals(Collections.singletonList("Kernel"), record.getLabels());
+    }
+
+    @Test
+    public void recordsOnlyHoldPlainValues() throws Exception {
+        for (Field field : ChangeRecord.class.getDeclaredFields()) {
+            Type type = field.getGenericType();
+            assertTrue(field.getName() + " is a " + type.getTypeName(), type == int.class || type == String.class
+                    || type.getTypeName().equals("java.util.List<java.lang.String>"));
+        }
+    }
+
+    @Test
+    public void changeLogKeepsACopyOfOtherChanges() throws Exception {
+        ChangeLog cl = new ChangeLog(Collections.emptyList(), "1.0.0", Collections.singletonList("Kernel"));
+
+        cl.addToChangeLog(new SourceChange(new byte[1024 * 1024]));
+
+        StringWriter sw = new StringWriter();
+        cl.writeTo(sw);
+        assertEquals("\n## 1.0.0\n\n\n### Kernel\n\n- Fixed a bug\n", sw.toString());
+    }
+
+    @Test
+    public void changeLogUsesTheResolvedCategory() throws Exception {
+        ChangeLog cl = new ChangeLog(Collections.emptyList(), "1.0.0", Arrays.asList("Kernel", "Cypher"));
+
+        cl.addToChangeLog(new ChangeRecord(1, "Resolved [#1]", "1.0.0", Collections.singletonList("Kernel"),
+                "Cypher"));
+        cl.addToChangeLog(new ChangeRecord(2, "Unknown category [#2]", "1.0.0", Collections.singletonList("Kernel"),
+                "Bolt"));
+        cl.addToChangeLog(new ChangeRecord(3, "Not resolved [#3]", "1.0.0", Collections.singletonList("cypher")));
+
+        StringWriter sw = new StringWriter();
+        cl.writeTo(sw);
+        assertEquals("\n## 1.0.0\n\n\n### Kernel\n\n- Unknown category [#2]\n" +
+                "\n### Cypher\n\n- Resolved [#1]\n- Not resolved [#3]\n", sw.toString());
+        assertEquals("Misc", cl.getCategoryFor(Collections.singletonList("Bolt")));
+    }
+
+    /**
+     * Like the changes which used to hold on to a commit or a pull request.
+     */
+    private static class SourceChange implements Change {
+        private final byte[] source;
+
+        SourceChange(byte[] source) {
+            this.source = source;
+        }
+
+        @Override
+        public int getSortingNumber() {
+            return 7;
+        }
+
+        @Nonnull
+        @Override
+        public List<String> getLabels() {
+            return Arrays.asList("Kernel", "bug");
+        }
+
+        @Nonnull
+        @Override
+        public String getVersion() {
+            return "1.0.0";
+        }
+
+        @Override
+        public String toString() {
+            return "Fixed a bug";
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.neo4j.changelog;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ExistingChangeLogTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void newestVersionIsAfterTheNextHeader() throws Exception {
+        String text = "\n## Unreleased\n\n\n### Kernel\n\n- Fix [#5]\n" +
+                "\n## 1.0.1\n\n\n### Kernel\n\n- Fix [#4]\n" +
+                "\n## 1.0.0\n\n\n### Misc\n\n- Fix [#3]\n";
+
+        ExistingChangeLog existing = ExistingChangeLog.parse(text, "Unreleased");
+
+        assertEquals("1.0.1", existing.getNewestVersion());
+        assertEquals("", existing.getHead());
+        assertEquals("\n## 1.0.1\n\n\n### Kernel\n\n- Fix [#4]\n\n## 1.0.0\n\n\n### Misc\n\n- Fix [#3]\n",
+                existing.getKept());
+    }
+
+    @Test
+    public void headIsKept() throws Exception {
+        ExistingChangeLog existing = ExistingChangeLog.parse("# Changes\n\n## 1.0.0\n\n- Fix [#3]\n", "Unreleased");
+
+        assertEquals("# Changes\n", existing.getHead());
+        assertEquals("\n## 1.0.0\n\n- Fix [#3]\n", existing.getKept());
+    }
+
+    @Test
+    public void noVersionsMeansNoExistingChangeLog() throws Exception {
+        assertNull(ExistingChangeLog.parse("\n## Unreleased\n\n\n### Kernel\n\n- Fix [#5]\n", "Unreleased"));
+        assertNull(ExistingChangeLog.read(tmp.getRoot().toPath().resolve("CHANGELOG.md"), "Unreleased"));
+    }
+
+    @Test
+    public void newSectionsAreSplicedInFrontOfKeptOnes() throws Exception {
+        Path path = tmp.newFile("CHANGELOG.md").toPath();
+        String kept = "\n## 1.0.0\n\n\n### Kernel\n\n- Hand edited [#1]\n";
+        Files.write(path, ("\n## Unreleased\n\n\n### Kernel\n\n- Old [#2]\n" + kept).getBytes(StandardCharsets.UTF_8));
+        ExistingChangeLog existing = ExistingChangeLog.read(path, "Unreleased");
+
+        ChangeLog cl = new ChangeLog(Arrays.asList(), "Unreleased", Arrays.asList("Kernel"));
+        cl.addToChangeLog(new ChangeRecord(2, "New [#2]", "Unreleased", Arrays.asList("Kernel")));
+        cl.addToChangeLog(new ChangeRecord(3, "Newer [#3]", "Unreleased", Arrays.asList("Kernel")));
+        cl.writeIncrementally(path, existing);
+
+        assertEquals("\n## Unreleased\n\n\n### Kernel\n\n- New [#2]\n- Newer [#3]\n" + kept,
+                new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+        assertEquals(1, tmp.getRoot().list().length);
+    }
+}
@@ -1,8 +1,19 @@
 package org.neo4j.changelog;
 
+import org.eclipse.jgit.lib.ObjectIdRef;
+import org.eclipse.jgit.lib.Ref;
 import org.junit.Test;
+import org.neo4j.changelog.git.GitHelper;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 
 import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 
 public class UtilTest {
@@ -30,4 +41,29 @@ public class UtilTest {
     public void asSemanticVersionFail2() {
         Util.asSemanticVersion("Bob");
     }
+
+    @Test
+    public void versionComparator() {
+        List<String> versions = Arrays.asList("bob", "3.1.0", "v3.0.10", "3.1.0-RC1", "neo4j-3.0.2", "alice");
+        versions.sort(Util.getVersionComparator());
+
+        assertEquals(Arrays.asList("neo4j-3.0.2", "v3.0.10", "3.1.0-RC1", "3.1.0", "alice", "bob"), versions);
+    }
+
+    @Test
+    public void refSorterNamesRefsItCannotCompare() throws Exception {
+        Ref known = new ObjectIdRef.Unpeeled(Ref.Storage.LOOSE, "refs/tags/1.0", null);
+        Ref unknown = new ObjectIdRef.Unpeeled(Ref.Storage.LOOSE, "refs/tags/2.0", null);
+        GitHelper gitHelper = mock(GitHelper.class);
+        when(gitHelper.getTopologicalRanks(any(), any())).thenReturn(Collections.singletonMap("refs/tags/1.0", 0));
+
+        Comparator<Ref> sorter = Util.getGitRefSorter(gitHelper, Collections.singletonList(known), (a, b) -> 0);
+        assertEquals(0, sorter.compare(known, known));
+        try {
+            sorter.compare(known, unknown);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("refs/tags/2.0"));
+        }
+    }
 }
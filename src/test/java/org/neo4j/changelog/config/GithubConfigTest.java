@@ -35,6 +35,87 @@ public class GithubConfigTest {
         assertEquals("", c.getRepo());
         assertEquals("", c.getToken());
         assertEquals(false, c.getIncludeAuthor());
+        assertEquals(GithubConfig.DEFAULT_MAX_REQUESTS, c.getMaxRequests());
+        assertEquals(false, c.getBulkFetch());
+        assertEquals("", c.getStoreDir());
+        assertEquals(false, c.getRebuildStore());
+        assertEquals(".githubcache", c.getCacheDir());
+        assertEquals(10, c.getCacheSize());
+        assertEquals("rest", c.getBackend());
+    }
+
+    @Test
+    public void testBackend() throws Exception {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("backend", "graphql");
+
+        assertEquals(GithubConfig.BACKEND_GRAPHQL, GithubConfig.from(settings).getBackend());
+    }
+
+    @Test
+    public void testUnknownBackend() throws Exception {
+        exception.expectMessage("'backend' in [github] should be 'rest' or 'graphql'");
+
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("backend", "soap");
+
+        GithubConfig.from(settings);
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("cache_dir", "/tmp/cache");
+        settings.put("cache_size", 0L);
+
+        GithubConfig c = GithubConfig.from(settings);
+
+        assertEquals("/tmp/cache", c.getCacheDir());
+        assertEquals(0, c.getCacheSize());
+    }
+
+    @Test
+    public void testCacheSizeCanNotBeNegative() throws Exception {
+        exception.expectMessage("'cache_size' in [github] can not be negative");
+
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("cache_size", -1L);
+
+        GithubConfig.from(settings);
+    }
+
+    @Test
+    public void testStoreDir() throws Exception {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("store_dir", ".changelog-store");
+
+        assertEquals(".changelog-store", GithubConfig.from(settings).getStoreDir());
+    }
+
+    @Test
+    public void testBulkFetch() throws Exception {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("bulk_fetch", true);
+
+        assertEquals(true, GithubConfig.from(settings).getBulkFetch());
+    }
+
+    @Test
+    public void testMaxRequests() throws Exception {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("max_requests", 32L);
+
+        assertEquals(32, GithubConfig.from(settings).getMaxRequests());
+    }
+
+    @Test
+    public void testMaxRequestsMustBePositive() throws Exception {
+        exception.expectMessage("'max_requests' in [github] should be at least 1");
+
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("max_requests", 0L);
+
+        GithubConfig.from(settings);
     }
 
     @Test
@@ -51,7 +132,7 @@ public class GithubConfigTest {
 
     @Test
     public void testSetToken() throws Exception {
-        Map minSettings = new HashMap();
+        Map<String, Object> minSettings = new HashMap<>();
 
         GithubConfig c = GithubConfig.from(minSettings);
 
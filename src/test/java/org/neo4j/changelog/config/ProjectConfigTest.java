@@ -176,6 +176,37 @@ public class ProjectConfigTest {
         assertEquals("subrepo", sub.getGithubConfig().getRepo());
     }
 
+    @Test
+    public void testOutputs() throws Exception {
+        StringBuilder tml = new StringBuilder()
+                .append("output = 'CHANGES.md'\n")
+                .append("[outputs]\n")
+                .append("json = 'changes.json'\n")
+                .append("html = 'changes.html'\n")
+                .append("[git]\n")
+                .append("to = 'abc'\n");
+
+        ProjectConfig c = ProjectConfig.from(Toml.read(tml.toString()));
+
+        assertEquals("CHANGES.md", c.getOutputs().get("markdown"));
+        assertEquals("changes.json", c.getOutputs().get("json"));
+        assertEquals("changes.html", c.getOutputs().get("html"));
+        assertEquals(3, c.getOutputs().size());
+    }
+
+    @Test
+    public void testUnknownOutputFormat() throws Exception {
+        exception.expectMessage("Unknown format 'pdf' in [outputs], expected one of: markdown, asciidoc, html, json");
+
+        StringBuilder tml = new StringBuilder()
+                .append("[outputs]\n")
+                .append("pdf = 'changes.pdf'\n")
+                .append("[git]\n")
+                .append("to = 'abc'\n");
+
+        ProjectConfig.from(Toml.read(tml.toString()));
+    }
+
     @Test
     public void testAll() throws Exception {
         StringBuilder tml = new StringBuilder()
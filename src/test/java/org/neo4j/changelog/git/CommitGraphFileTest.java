@@ -0,0 +1,232 @@
+package org.neo4j.changelog.git;
+
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+
+public class CommitGraphFileTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+    private Repository repo;
+    private ObjectId emptyTree;
+
+    @Before
+    public void setup() throws IOException {
+        repo = FileRepositoryBuilder.create(new File(tempFolder.getRoot(), ".git"));
+        repo.create();
+        try (ObjectInserter inserter = repo.newObjectInserter()) {
+            emptyTree = inserter.insert(Constants.OBJ_TREE, new byte[0]);
+            inserter.flush();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        repo.close();
+    }
+
+    @Test
+    public void missingFileIsIgnored() throws Exception {
+        commit();
+
+        assertNull(CommitGraphFile.open(repo));
+    }
+
+    @Test
+    public void readsParentsTimesAndGenerations() throws Exception {
+        List<ObjectId> commits = randomHistory(new Random(7), 120);
+        // Octopus merges are stored in a separate chunk
+        commits.add(commit(commits.get(119), commits.get(50), commits.get(20), commits.get(3)));
+        writeCommitGraph(commits.get(commits.size() - 1));
+
+        CommitGraphFile graph = CommitGraphFile.open(repo);
+        assertNotNull(graph);
+        assertEquals(commits.size(), graph.size());
+
+        Map<ObjectId, Integer> generations = new HashMap<>();
+        try (RevWalk walk = new RevWalk(repo)) {
+            for (ObjectId commit : commits) {
+                int position = graph.findPosition(commit);
+                assertEquals(commit, graph.getObjectId(position));
+
+                RevCommit revCommit = walk.parseCommit(commit);
+                int[] parents = graph.getParents(position);
+                ObjectId[] parentIds = new ObjectId[parents.length];
+                for (int i = 0; i < parents.length; i++) {
+                    parentIds[i] = graph.getObjectId(parents[i]);
+                }
+                assertArrayEquals(revCommit.getParents(), parentIds);
+                assertEquals(revCommit.getCommitTime(), graph.getCommitTime(position));
+
+                int generation = 1;
+                for (RevCommit parent : revCommit.getParents()) {
+                    generation = Math.max(generation, generations.get(parent) + 1);
+                }
+                generations.put(commit, generation);
+                assertEquals(generation, graph.getGeneration(position));
+            }
+        }
+        assertEquals(-1, graph.findPosition(ObjectId.zeroId()));
+    }
+
+    @Test
+    public void agreesWithRevWalkOnAncestry() throws Exception {
+        List<ObjectId> commits = randomHistory(new Random(42), 100);
+        writeCommitGraph(commits.get(commits.size() - 1));
+        CommitGraphFile graph = CommitGraphFile.open(repo);
+        assertNotNull(graph);
+
+        try (RevWalk walk = new RevWalk(repo)) {
+            for (ObjectId base : commits) {
+                for (ObjectId tip : commits) {
+                    assertEquals(base.name() + " -> " + tip.name(),
+                            walk.isMergedInto(walk.parseCommit(base), walk.parseCommit(tip)),
+                            graph.isAncestor(graph.findPosition(base), graph.findPosition(tip)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void agreesWithRevWalkOnOldestInRange() throws Exception {
+        List<ObjectId> commits = randomHistory(new Random(11), 60);
+        writeCommitGraph(commits.get(commits.size() - 1));
+        CommitGraphFile graph = CommitGraphFile.open(repo);
+        assertNotNull(graph);
+        assumeTrue("git wrote no generation numbers", graph.hasGenerations());
+
+        try (RevWalk walk = new RevWalk(repo)) {
+            for (ObjectId base : commits) {
+                for (ObjectId tip : commits) {
+                    walk.reset();
+                    walk.markStart(walk.parseCommit(tip));
+                    walk.markUninteresting(walk.parseCommit(base));
+                    ObjectId expected = null;
+                    for (RevCommit commit : walk) {
+                        expected = commit.toObjectId();
+                    }
+
+                    int oldest = graph.getOldestInRange(graph.findPosition(base), graph.findPosition(tip));
+                    assertEquals(base.name() + ".." + tip.name(), expected,
+                            oldest < 0 ? null : graph.getObjectId(oldest));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void indexFromStaleCommitGraph() throws Exception {
+        Random random = new Random(3);
+        List<ObjectId> commits = randomHistory(random, 80);
+        writeCommitGraph(commits.get(commits.size() - 1));
+        // Commits which are newer than the commit-graph are parsed instead
+        for (int i = 0; i < 40; i++) {
+            int size = commits.size();
+            commits.add(commit(commits.get(size - 1), commits.get(random.nextInt(size))));
+        }
+        CommitGraphFile graph = CommitGraphFile.open(repo);
+        assertNotNull(graph);
+        assertEquals(80, graph.size());
+
+        List<ObjectId> tips = new ArrayList<>(commits.subList(60, 120));
+        Collections.shuffle(tips, random);
+        ReachabilityIndex withGraph = build(graph, tips.toArray(new ObjectId[tips.size()]));
+        ReachabilityIndex withoutGraph = build(null, tips.toArray(new ObjectId[tips.size()]));
+
+        assertEquals(withoutGraph.size(), withGraph.size());
+        for (ObjectId base : commits) {
+            for (ObjectId tip : tips) {
+                assertEquals(withoutGraph.isAncestor(base, tip), withGraph.isAncestor(base, tip));
+            }
+        }
+    }
+
+    private void writeCommitGraph(ObjectId head) throws IOException, InterruptedException {
+        RefUpdate update = repo.updateRef("refs/heads/master");
+        update.setNewObjectId(head);
+        update.forceUpdate();
+
+        Process process;
+        try {
+            process = new ProcessBuilder("git", "commit-graph", "write", "--reachable")
+                    .directory(repo.getDirectory())
+                    .redirectErrorStream(true)
+                    .start();
+        } catch (IOException e) {
+            assumeTrue("git is not installed", false);
+            return;
+        }
+        assumeTrue("git could not write a commit-graph", process.waitFor() == 0);
+    }
+
+    private ReachabilityIndex build(CommitGraphFile graph, ObjectId... tips) throws IOException {
+        try (RevWalk walk = new RevWalk(repo)) {
+            List<ObjectId> tipList = new ArrayList<>();
+            Collections.addAll(tipList, tips);
+            return ReachabilityIndex.build(walk, graph, tipList);
+        }
+    }
+
+    /**
+     * Every commit is reachable from the last one, so that all of them end up in the commit-graph.
+     */
+    private List<ObjectId> randomHistory(Random random, int size) throws IOException {
+        List<ObjectId> commits = new ArrayList<>();
+        commits.add(commit());
+        for (int i = 1; i < size; i++) {
+            ObjectId first = commits.get(i - 1);
+            if (random.nextInt(4) == 0) {
+                commits.add(commit(first, commits.get(random.nextInt(i))));
+            } else {
+                commits.add(commit(first));
+            }
+        }
+        return commits;
+    }
+
+    private int time = 1000000000;
+
+    private ObjectId commit(ObjectId... parents) throws IOException {
+        PersonIdent ident = new PersonIdent("Test", "test@example.com", 1000L * time++, 0);
+        CommitBuilder builder = new CommitBuilder();
+        builder.setTreeId(emptyTree);
+        builder.setParentIds(parents);
+        builder.setAuthor(ident);
+        builder.setCommitter(ident);
+        builder.setMessage("Commit " + time);
+        try (ObjectInserter inserter = repo.newObjectInserter()) {
+            ObjectId id = inserter.insert(builder);
+            inserter.flush();
+            return id;
+        }
+    }
+}
@@ -20,6 +20,7 @@ import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doReturn;
@@ -46,6 +47,7 @@ public class GitHelperTest {
         doReturn(TEST_C).when(gitConfig).getTo();
         doReturn(Pattern.compile(GitConfig.DEFAULT_TAG_PATTERN)).when(gitConfig).getTagPattern();
         doReturn("./").when(gitConfig).getCloneDir();
+        doReturn("").when(gitConfig).getVersionCache();
         gitHelper = new GitHelper(config);
     }
 
@@ -221,6 +223,16 @@ public class GitHelperTest {
                 "33cd4f62a27d5b67eef82b00be4c7d84df3a2fdd"));
     }
 
+    @Test
+    public void testIsInRange() throws Exception {
+        assertTrue(gitHelper.isInRange(TEST_C));
+        // From is not part of the range
+        assertFalse(gitHelper.isInRange(gitHelper.getOldestCommit().getName()));
+        // Such as the head of a pull request from a fork
+        assertFalse(gitHelper.isInRange("deadbeefdeadbeefdeadbeefdeadbeefdeadbeef"));
+        assertFalse(gitHelper.isInRange("notarealcommit"));
+    }
+
     @Test
     public void testGetCommitFromString() throws Exception {
         assertEquals("2bf464ebf41d5986bc18158ccdef87c5ba080198",
@@ -236,6 +248,19 @@ public class GitHelperTest {
                 gitHelper.getCommitFromString("0.0.1").abbreviate(8).name());
     }
 
+    @Test
+    public void testCommitResolutionIsCached() throws Exception {
+        long hits = gitHelper.getResolveCacheHits();
+        long misses = gitHelper.getResolveCacheMisses();
+
+        assertEquals(gitHelper.getCommitFromString("0.0.3"), gitHelper.getCommitFromString("0.0.3"));
+        assertNull(gitHelper.getCommitFromString("notarealcommit"));
+        assertNull(gitHelper.getCommitFromString("notarealcommit"));
+
+        assertEquals(hits + 2, gitHelper.getResolveCacheHits());
+        assertEquals(misses + 2, gitHelper.getResolveCacheMisses());
+    }
+
     @Test
     public void testGetFirstVersion() throws Exception {
         String fallback = "next";
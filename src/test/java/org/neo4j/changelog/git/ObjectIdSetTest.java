@@ -0,0 +1,72 @@
+package org.neo4j.changelog.git;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class ObjectIdSetTest {
+
+    @Test
+    public void containsWhatWasAdded() throws Exception {
+        Random random = new Random(1);
+        List<ObjectId> added = new ArrayList<>();
+        // Grows well beyond the expected size
+        ObjectIdSet set = new ObjectIdSet(10);
+        for (int i = 0; i < 5000; i++) {
+            ObjectId id = randomId(random);
+            assertTrue(set.add(id));
+            added.add(id);
+        }
+
+        assertEquals(5000, set.size());
+        for (ObjectId id : added) {
+            assertTrue(set.contains(id));
+            assertFalse(set.add(id.copy()));
+        }
+        for (int i = 0; i < 5000; i++) {
+            assertFalse(set.contains(randomId(random)));
+        }
+        assertEquals(5000, set.size());
+    }
+
+    @Test
+    public void zeroIdIsAnId() throws Exception {
+        ObjectIdSet set = new ObjectIdSet(1);
+        assertFalse(set.contains(ObjectId.zeroId()));
+
+        assertTrue(set.add(ObjectId.zeroId()));
+        assertFalse(set.add(ObjectId.zeroId()));
+
+        assertTrue(set.contains(ObjectId.zeroId()));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void idsWhichShareAHash() throws Exception {
+        ObjectIdSet set = new ObjectIdSet(16);
+        ObjectId a = ObjectId.fromString("1111111100000000000000000000000000000001");
+        ObjectId b = ObjectId.fromString("2222222200000000000000000000000000000001");
+        ObjectId c = ObjectId.fromString("3333333300000000000000000000000000000001");
+
+        set.add(a);
+        set.add(b);
+
+        assertTrue(set.contains(a));
+        assertTrue(set.contains(b));
+        assertFalse(set.contains(c));
+    }
+
+    private static ObjectId randomId(Random random) {
+        byte[] raw = new byte[20];
+        random.nextBytes(raw);
+        return ObjectId.fromRaw(raw);
+    }
+}
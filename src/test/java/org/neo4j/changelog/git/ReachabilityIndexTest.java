@@ -0,0 +1,250 @@
+package org.neo4j.changelog.git;
+
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class ReachabilityIndexTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+    private Repository repo;
+    private ObjectId emptyTree;
+
+    @Before
+    public void setup() throws IOException {
+        repo = FileRepositoryBuilder.create(new File(tempFolder.getRoot(), ".git"));
+        repo.create();
+        try (ObjectInserter inserter = repo.newObjectInserter()) {
+            emptyTree = inserter.insert(Constants.OBJ_TREE, new byte[0]);
+            inserter.flush();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        repo.close();
+    }
+
+    @Test
+    public void linearHistory() throws Exception {
+        ObjectId a = commit();
+        ObjectId b = commit(a);
+        ObjectId c = commit(b);
+
+        ReachabilityIndex index = build(c);
+
+        assertEquals(3, index.size());
+        assertTrue(index.isAncestor(a, c));
+        assertTrue(index.isAncestor(b, c));
+        assertTrue(index.isAncestor(c, c));
+        assertFalse(index.isAncestor(c, a));
+        assertFalse(index.isAncestor(b, a));
+    }
+
+    @Test
+    public void mergedBranches() throws Exception {
+        ObjectId root = commit();
+        ObjectId left = commit(root);
+        ObjectId right = commit(root);
+        ObjectId merge = commit(left, right);
+        ObjectId after = commit(merge);
+
+        ReachabilityIndex index = build(after);
+
+        assertTrue(index.isAncestor(right, after));
+        assertTrue(index.isAncestor(left, after));
+        assertFalse(index.isAncestor(left, right));
+        assertFalse(index.isAncestor(right, left));
+        assertFalse(index.isAncestor(merge, right));
+    }
+
+    @Test
+    public void unindexedBaseIsNeverAncestor() throws Exception {
+        ObjectId a = commit();
+        ObjectId b = commit(a);
+        ObjectId elsewhere = commit(a);
+
+        ReachabilityIndex index = build(b);
+
+        assertFalse(index.contains(elsewhere));
+        assertFalse(index.isAncestor(elsewhere, b));
+    }
+
+    @Test
+    public void agreesWithRevWalkOnRandomHistory() throws Exception {
+        Random random = new Random(42);
+        List<ObjectId> commits = new ArrayList<>();
+        commits.add(commit());
+        for (int i = 1; i < 150; i++) {
+            ObjectId first = commits.get(i - 1 - random.nextInt(Math.min(i, 5)));
+            if (random.nextInt(4) == 0) {
+                commits.add(commit(first, commits.get(random.nextInt(i))));
+            } else {
+                commits.add(commit(first));
+            }
+        }
+
+        List<ObjectId> tips = new ArrayList<>(commits.subList(100, 150));
+        Collections.shuffle(tips, random);
+        ReachabilityIndex index = build(tips.toArray(new ObjectId[tips.size()]));
+
+        try (RevWalk walk = new RevWalk(repo)) {
+            for (ObjectId base : commits) {
+                for (ObjectId tip : commits) {
+                    if (index.contains(tip)) {
+                        assertEquals(base.name() + " -> " + tip.name(),
+                                walk.isMergedInto(walk.parseCommit(base), walk.parseCommit(tip)),
+                                index.isAncestor(base, tip));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void labelsCommitsWithFirstContainingTip() throws Exception {
+        ObjectId root = commit();
+        ObjectId first = commit(root);
+        ObjectId branch = commit(root);
+        ObjectId second = commit(first);
+        ObjectId merge = commit(second, branch);
+
+        ReachabilityIndex index = build(merge);
+        int[] labels = index.labelFirstContaining(new int[]{index.getId(first), index.getId(merge)});
+
+        assertEquals(0, labels[index.getId(root)]);
+        assertEquals(0, labels[index.getId(first)]);
+        assertEquals(1, labels[index.getId(branch)]);
+        assertEquals(1, labels[index.getId(second)]);
+        assertEquals(1, labels[index.getId(merge)]);
+    }
+
+    @Test
+    public void unreachedCommitsAreNotLabeled() throws Exception {
+        ObjectId root = commit();
+        ObjectId tagged = commit(root);
+        ObjectId after = commit(tagged);
+
+        ReachabilityIndex index = build(after);
+        int[] labels = index.labelFirstContaining(new int[]{index.getId(tagged)});
+
+        assertEquals(0, labels[index.getId(root)]);
+        assertEquals(-1, labels[index.getId(after)]);
+    }
+
+    @Test
+    public void nearestContainedSkipsCommitsInBetween() throws Exception {
+        ObjectId root = commit();
+        ObjectId first = commit(root);
+        ObjectId branch = commit(root);
+        ObjectId second = commit(first);
+        ObjectId merge = commit(second, branch);
+
+        ReachabilityIndex index = build(merge);
+        int[][] contained = index.nearestContained(new int[]{
+                index.getId(merge), index.getId(first), index.getId(branch), index.getId(root), index.getId(second)});
+
+        assertArrayEquals(new int[]{2, 4}, sorted(contained[0]));
+        assertArrayEquals(new int[]{3}, contained[1]);
+        assertArrayEquals(new int[]{3}, contained[2]);
+        assertArrayEquals(new int[0], contained[3]);
+        assertArrayEquals(new int[]{1}, contained[4]);
+    }
+
+    @Test
+    public void nearestContainedAgreesWithAncestryOnRandomHistory() throws Exception {
+        Random random = new Random(11);
+        List<ObjectId> commits = new ArrayList<>();
+        commits.add(commit());
+        for (int i = 1; i < 200; i++) {
+            ObjectId first = commits.get(i - 1 - random.nextInt(Math.min(i, 5)));
+            if (random.nextInt(4) == 0) {
+                commits.add(commit(first, commits.get(random.nextInt(i))));
+            } else {
+                commits.add(commit(first));
+            }
+        }
+        ReachabilityIndex index = build(commits.get(199));
+        List<ObjectId> tagged = new ArrayList<>();
+        for (ObjectId commit : commits) {
+            if (index.contains(commit) && random.nextInt(6) == 0) {
+                tagged.add(commit);
+            }
+        }
+        int[] ids = tagged.stream().mapToInt(index::getId).toArray();
+
+        int[][] contained = index.nearestContained(ids);
+
+        // What the nearest ones contain in turn is everything which is contained
+        for (int tip = 0; tip < ids.length; tip++) {
+            boolean[] reached = new boolean[ids.length];
+            List<Integer> pending = new ArrayList<>();
+            pending.add(tip);
+            while (!pending.isEmpty()) {
+                for (int base : contained[pending.remove(pending.size() - 1)]) {
+                    if (!reached[base]) {
+                        reached[base] = true;
+                        pending.add(base);
+                    }
+                }
+            }
+            for (int base = 0; base < ids.length; base++) {
+                assertEquals(base != tip && index.isAncestor(ids[base], ids[tip]), reached[base]);
+            }
+        }
+    }
+
+    private static int[] sorted(int[] array) {
+        int[] copy = array.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    private ReachabilityIndex build(ObjectId... tips) throws IOException {
+        try (RevWalk walk = new RevWalk(repo)) {
+            return ReachabilityIndex.build(walk, Arrays.asList(tips));
+        }
+    }
+
+    private int time = 1000000000;
+
+    private ObjectId commit(ObjectId... parents) throws IOException {
+        PersonIdent ident = new PersonIdent("Test", "test@example.com", 1000L * time++, 0);
+        CommitBuilder builder = new CommitBuilder();
+        builder.setTreeId(emptyTree);
+        builder.setParentIds(parents);
+        builder.setAuthor(ident);
+        builder.setCommitter(ident);
+        builder.setMessage("Commit " + time);
+        try (ObjectInserter inserter = repo.newObjectInserter()) {
+            ObjectId id = inserter.insert(builder);
+            inserter.flush();
+            return id;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.neo4j.changelog.git;
+
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+
+public class RevWalkPoolTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+    private Repository repo;
+    private RevWalkPool pool;
+
+    @Before
+    public void setup() throws IOException {
+        repo = FileRepositoryBuilder.create(new File(tempFolder.getRoot(), ".git"));
+        repo.create();
+        pool = new RevWalkPool(repo);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+        repo.close();
+    }
+
+    @Test
+    public void walksAreReused() throws Exception {
+        RevWalk first;
+        try (RevWalkPool.Lease lease = pool.borrow()) {
+            first = lease.get();
+        }
+        try (RevWalkPool.Lease lease = pool.borrow()) {
+            assertSame(first, lease.get());
+        }
+    }
+
+    @Test
+    public void nestedBorrowsGetDifferentWalks() throws Exception {
+        try (RevWalkPool.Lease outer = pool.borrow();
+             RevWalkPool.Lease inner = pool.borrow()) {
+            assertNotSame(outer.get(), inner.get());
+        }
+    }
+
+    @Test
+    public void threadsGetDifferentWalks() throws Exception {
+        RevWalk mine;
+        try (RevWalkPool.Lease lease = pool.borrow()) {
+            mine = lease.get();
+        }
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            RevWalk theirs = executor.submit(() -> {
+                try (RevWalkPool.Lease lease = pool.borrow()) {
+                    return lease.get();
+                }
+            }).get();
+            assertNotSame(mine, theirs);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void returnedWalksForgetWhatTheyParsed() throws Exception {
+        ObjectId id;
+        try (ObjectInserter inserter = repo.newObjectInserter()) {
+            PersonIdent ident = new PersonIdent("Test", "test@example.com");
+            CommitBuilder builder = new CommitBuilder();
+            builder.setTreeId(inserter.insert(Constants.OBJ_TREE, new byte[0]));
+            builder.setAuthor(ident);
+            builder.setCommitter(ident);
+            builder.setMessage("Commit");
+            id = inserter.insert(builder);
+            inserter.flush();
+        }
+
+        RevCommit first;
+        try (RevWalkPool.Lease lease = pool.borrow()) {
+            first = lease.get().parseCommit(id);
+        }
+        try (RevWalkPool.Lease lease = pool.borrow()) {
+            RevCommit second = lease.get().parseCommit(id);
+            assertNotSame(first, second);
+            assertEquals("Commit", second.getFullMessage());
+        }
+    }
+}
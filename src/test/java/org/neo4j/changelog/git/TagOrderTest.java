@@ -0,0 +1,98 @@
+package org.neo4j.changelog.git;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdRef;
+import org.eclipse.jgit.lib.Ref;
+import org.junit.Test;
+import org.neo4j.changelog.Util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class TagOrderTest {
+
+    private final Map<String, ObjectId> commits = new HashMap<>();
+    // Commit -> parent commit
+    private final Map<ObjectId, ObjectId> parents = new HashMap<>();
+
+    @Test
+    public void ancestorsComeFirst() throws Exception {
+        ObjectId a = commit(null);
+        ObjectId b = commit(a);
+        ObjectId c = commit(b);
+
+        assertEquals(Arrays.asList("1.0.0", "0.9.0", "1.1.0"),
+                sort(tag("1.1.0", c), tag("1.0.0", a), tag("0.9.0", b)));
+    }
+
+    @Test
+    public void divergingBranchesAreOrderedByVersion() throws Exception {
+        ObjectId root = commit(null);
+        ObjectId maintenance1 = commit(root);
+        ObjectId maintenance2 = commit(maintenance1);
+        ObjectId master1 = commit(root);
+        ObjectId master2 = commit(master1);
+
+        assertEquals(Arrays.asList("3.0.0", "3.0.1", "3.0.2", "3.1.0", "3.1.1"),
+                sort(tag("3.1.1", master2), tag("3.0.2", maintenance2), tag("3.1.0", master1),
+                        tag("3.0.1", maintenance1), tag("3.0.0", root)));
+    }
+
+    @Test
+    public void sameCommitIsOrderedByTieBreakerThenVersion() throws Exception {
+        ObjectId a = commit(null);
+        ObjectId b = commit(a);
+
+        assertEquals(Arrays.asList("1.0.0", "v1.0.0", "2.0.0"),
+                sort(tag("v1.0.0", a), tag("2.0.0", b), tag("1.0.0", a)));
+
+        List<Ref> tags = Arrays.asList(tag("1.0.0", a), tag("v1.0.0", a));
+        List<Ref> sorted = TagOrder.sort(tags, commitsOf(tags), this::isAncestorOf,
+                (t1, t2) -> Util.getTagName(t1).startsWith("v") ? -1 : 1);
+        assertEquals(Arrays.asList("v1.0.0", "1.0.0"), names(sorted));
+    }
+
+    private List<String> sort(Ref... tags) throws Exception {
+        List<Ref> list = new ArrayList<>(Arrays.asList(tags));
+        Collections.reverse(list);
+        return names(TagOrder.sort(list, commitsOf(list), this::isAncestorOf, (t1, t2) -> 0));
+    }
+
+    private static List<String> names(List<Ref> tags) {
+        return tags.stream().map(Util::getTagName).collect(Collectors.toList());
+    }
+
+    private List<ObjectId> commitsOf(List<Ref> tags) {
+        return tags.stream().map(Ref::getObjectId).collect(Collectors.toList());
+    }
+
+    private boolean isAncestorOf(ObjectId base, ObjectId tip) {
+        for (ObjectId commit = tip; commit != null; commit = parents.get(commit)) {
+            if (commit.equals(base)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ObjectId commit(ObjectId parent) {
+        ObjectId commit = ObjectId.fromRaw(new int[]{commits.size() + 1, 0, 0, 0, 0});
+        commits.put(commit.name(), commit);
+        if (parent != null) {
+            parents.put(commit, parent);
+        }
+        return commit;
+    }
+
+    private static Ref tag(String name, ObjectId commit) {
+        return new ObjectIdRef.PeeledNonTag(Ref.Storage.LOOSE, "refs/tags/" + name, commit);
+    }
+}
@@ -0,0 +1,213 @@
+package org.neo4j.changelog.git;
+
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VersionCacheTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+    private Repository repo;
+    private ObjectId emptyTree;
+    private Path dir;
+
+    @Before
+    public void setup() throws IOException {
+        repo = FileRepositoryBuilder.create(new File(tempFolder.getRoot(), ".git"));
+        repo.create();
+        try (ObjectInserter inserter = repo.newObjectInserter()) {
+            emptyTree = inserter.insert(Constants.OBJ_TREE, new byte[0]);
+            inserter.flush();
+        }
+        dir = tempFolder.getRoot().toPath().resolve("cache");
+    }
+
+    @After
+    public void tearDown() {
+        repo.close();
+    }
+
+    @Test
+    public void commitsGetTheFirstTagWhichContainsThem() throws Exception {
+        ObjectId root = commit();
+        ObjectId left = commit(root);
+        ObjectId right = commit(root);
+        ObjectId merge = commit(left, right);
+        ObjectId after = commit(merge);
+
+        try (VersionCache cache = VersionCache.open(dir)) {
+            assertEquals(5, update(cache, tags("1.0", "1.1", "2.0"), left, merge, after));
+
+            assertEquals("1.0", cache.getVersionOf(root, "next"));
+            assertEquals("1.0", cache.getVersionOf(left, "next"));
+            assertEquals("1.1", cache.getVersionOf(right, "next"));
+            assertEquals("1.1", cache.getVersionOf(merge, "next"));
+            assertEquals("2.0", cache.getVersionOf(after, "next"));
+            assertEquals("next", cache.getVersionOf(commit(after), "next"));
+        }
+    }
+
+    @Test
+    public void versionsAreKeptBetweenRuns() throws Exception {
+        ObjectId a = commit();
+        ObjectId b = commit(a);
+        List<String> tags = tags("1.0", "2.0");
+
+        try (VersionCache cache = VersionCache.open(dir)) {
+            assertEquals(2, update(cache, tags, a, b));
+        }
+        try (VersionCache cache = VersionCache.open(dir)) {
+            assertFalse(cache.isFor(tags));
+            assertEquals(0, update(cache, tags, a, b));
+            assertTrue(cache.isFor(tags));
+
+            assertEquals("1.0", cache.getVersionOf(a, "next"));
+            assertEquals("2.0", cache.getVersionOf(b, "next"));
+        }
+    }
+
+    @Test
+    public void onlyCommitsOfNewTagsAreLabeled() throws Exception {
+        ObjectId a = commit();
+        ObjectId b = commit(a);
+        ObjectId c = commit(b);
+        ObjectId d = commit(c);
+
+        try (VersionCache cache = VersionCache.open(dir)) {
+            assertEquals(2, update(cache, tags("1.0"), b));
+        }
+        try (VersionCache cache = VersionCache.open(dir)) {
+            assertEquals(2, update(cache, tags("1.0", "1.1"), b, d));
+
+            assertEquals("1.0", cache.getVersionOf(a, "next"));
+            assertEquals("1.1", cache.getVersionOf(c, "next"));
+            assertEquals("1.1", cache.getVersionOf(d, "next"));
+        }
+    }
+
+    @Test
+    public void movedTagLabelsEverythingAgain() throws Exception {
+        ObjectId a = commit();
+        ObjectId b = commit(a);
+        ObjectId c = commit(b);
+
+        try (VersionCache cache = VersionCache.open(dir)) {
+            assertEquals(3, update(cache, tags("1.0", "2.0"), b, c));
+        }
+        try (VersionCache cache = VersionCache.open(dir)) {
+            assertEquals(3, update(cache, tags("1.0", "2.0"), a, c));
+
+            assertEquals("1.0", cache.getVersionOf(a, "next"));
+            assertEquals("2.0", cache.getVersionOf(b, "next"));
+            assertEquals("2.0", cache.getVersionOf(c, "next"));
+        }
+    }
+
+    @Test
+    public void tableGrowsWithTheHistory() throws Exception {
+        List<ObjectId> commits = new ArrayList<>();
+        ObjectId tip = commit();
+        commits.add(tip);
+        for (int i = 0; i < 5000; i++) {
+            tip = commit(tip);
+            commits.add(tip);
+        }
+
+        try (VersionCache cache = VersionCache.open(dir)) {
+            assertEquals(5001, update(cache, tags("1.0", "2.0"), commits.get(3000), tip));
+        }
+        try (VersionCache cache = VersionCache.open(dir)) {
+            update(cache, tags("1.0", "2.0"), commits.get(3000), tip);
+            for (int i = 0; i < commits.size(); i++) {
+                assertEquals(i <= 3000 ? "1.0" : "2.0", cache.getVersionOf(commits.get(i), "next"));
+            }
+        }
+    }
+
+    @Test
+    public void parentsAreReadFromTheIndex() throws Exception {
+        ObjectId root = commit();
+        ObjectId left = commit(root);
+        ObjectId right = commit(root);
+        ObjectId merge = commit(left, right);
+
+        try (VersionCache cache = VersionCache.open(dir);
+             RevWalk walk = new RevWalk(repo)) {
+            ReachabilityIndex index = ReachabilityIndex.build(walk, Arrays.asList(left, merge));
+            assertEquals(4, cache.update(new CommitParents(walk, null, index), tags("1.0", "2.0"),
+                    Arrays.asList(left, merge)));
+
+            assertEquals("1.0", cache.getVersionOf(root, "next"));
+            assertEquals("1.0", cache.getVersionOf(left, "next"));
+            assertEquals("2.0", cache.getVersionOf(right, "next"));
+            assertEquals("2.0", cache.getVersionOf(merge, "next"));
+        }
+    }
+
+    @Test
+    public void unreadableCacheIsStartedOver() throws Exception {
+        ObjectId a = commit();
+        Files.createDirectories(dir);
+        Files.write(dir.resolve(VersionCache.TABLE), new byte[]{1, 2, 3});
+        Files.write(dir.resolve(VersionCache.MANIFEST), Arrays.asList("garbage"));
+
+        try (VersionCache cache = VersionCache.open(dir)) {
+            assertEquals(1, update(cache, tags("1.0"), a));
+            assertEquals("1.0", cache.getVersionOf(a, "next"));
+        }
+    }
+
+    private int update(VersionCache cache, List<String> tags, ObjectId... tagCommits) throws IOException {
+        try (RevWalk walk = new RevWalk(repo)) {
+            return cache.update(new CommitParents(walk, null, null), tags, Arrays.asList(tagCommits));
+        }
+    }
+
+    private static List<String> tags(String... versions) {
+        List<String> tags = new ArrayList<>();
+        for (String version : versions) {
+            tags.add(Constants.R_TAGS + version);
+        }
+        return tags;
+    }
+
+    private int time = 1000000000;
+
+    private ObjectId commit(ObjectId... parents) throws IOException {
+        PersonIdent ident = new PersonIdent("Test", "test@example.com", 1000L * time++, 0);
+        CommitBuilder builder = new CommitBuilder();
+        builder.setTreeId(emptyTree);
+        builder.setParentIds(parents);
+        builder.setAuthor(ident);
+        builder.setCommitter(ident);
+        builder.setMessage("Commit " + time);
+        try (ObjectInserter inserter = repo.newObjectInserter()) {
+            ObjectId id = inserter.insert(builder);
+            inserter.flush();
+            return id;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.neo4j.changelog.github;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ChangeLogScannerTest {
+
+    private static final String[] TOKENS = {"cl", "CL", "Cl", "changelog", "Changelog", "CHANGELOG", "change", ":",
+            " ", " ", "\t", "\n", "\n", "\r", "\r\n", "[", "]", "[", "]", ",", ",", "3.0", "2.3", " 3.1 ", "10.20",
+            "3.", ".0", "1", ".", "bug", "x", "_", "\u00e9", "\u0301", "\u2028", "\u2029", "\u0085", "\u000B", "\f",
+            "\u0001", "\u00a0", "clx", "cl_", "Fixed a bug", "\uD835\uDC00"};
+
+    @Test
+    public void bodiesWithoutChangeLogHaveNoEntry() throws Exception {
+        assertNull(ChangeLogScanner.scan(""));
+        assertNull(ChangeLogScanner.scan("Just a fix"));
+        assertNull(ChangeLogScanner.scan("see cl: not at the start of a line"));
+        assertNull(ChangeLogScanner.scan("clean up\nchangelogs: nope"));
+    }
+
+    @Test
+    public void metadataAndMessageAreSplit() throws Exception {
+        ChangeLogScanner.Entry entry = ChangeLogScanner.scan("Some text\r\nChangeLog: [3.0, kernel ,, 3.1 ] Fixed\n\n");
+
+        assertEquals("Fixed", entry.message);
+        assertEquals(Arrays.asList("3.0", "3.1"), entry.versions);
+        assertEquals(Arrays.asList("kernel"), entry.labels);
+    }
+
+    @Test
+    public void metadataMayNotSpanLines() throws Exception {
+        ChangeLogScanner.Entry entry = ChangeLogScanner.scan("cl: [3.0\n] message");
+
+        // The message still skips it
+        assertEquals("message", entry.message);
+        assertEquals(0, entry.versions.size());
+        assertEquals(0, entry.labels.size());
+    }
+
+    @Test
+    public void givesTheSameResultsAsTheRegularExpressions() throws Exception {
+        Random random = new Random(7474);
+        for (int i = 0; i < 50_000; i++) {
+            StringBuilder body = new StringBuilder();
+            int tokens = random.nextInt(16);
+            for (int j = 0; j < tokens; j++) {
+                body.append(TOKENS[random.nextInt(TOKENS.length)]);
+            }
+            assertSameAsRegex(body.toString());
+        }
+    }
+
+    private static void assertSameAsRegex(String body) {
+        String message = body.replace("\n", "\\n").replace("\r", "\\r");
+        Reference expected = Reference.parse(body);
+        ChangeLogScanner.Entry entry = ChangeLogScanner.scan(body);
+        if (expected == null) {
+            assertNull(message, entry);
+            return;
+        }
+        assertEquals(message, expected.message, entry.message);
+        assertEquals(message, expected.versions, entry.versions);
+        assertEquals(message, expected.labels, entry.labels);
+    }
+
+    /**
+     * How bodies were parsed before the scanner.
+     */
+    private static class Reference {
+        private static final Pattern CHANGELOG_PATTERN = Pattern.compile("^(cl|changelog)\\b[\\s:]*(.*)$",
+                Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
+        private static final Pattern METADATA_PATTERN = Pattern.compile("^\\[(.*?)\\]");
+        private static final Pattern VERSION_PATTERN = Pattern.compile("^\\s*\\d+\\.\\d+\\s*$");
+        private static final Pattern MESSAGE_PATTERN = Pattern.compile("^(?:\\[.*?\\])?\\s*(.*?)\\s*$",
+                Pattern.DOTALL);
+
+        String message;
+        List<String> versions = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+
+        static Reference parse(String body) {
+            Matcher matcher = CHANGELOG_PATTERN.matcher(body);
+            if (!matcher.find()) {
+                return null;
+            }
+            String rest = matcher.group(2);
+            Reference reference = new Reference();
+
+            Matcher msgMatch = MESSAGE_PATTERN.matcher(rest);
+            if (msgMatch.find()) {
+                reference.message = msgMatch.group(1);
+            }
+
+            Matcher metaMatch = METADATA_PATTERN.matcher(rest);
+            if (metaMatch.find()) {
+                for (String metaPart : metaMatch.group(1).split(",")) {
+                    if (VERSION_PATTERN.asPredicate().test(metaPart)) {
+                        reference.versions.add(metaPart.trim());
+                    } else if (!metaPart.trim().isEmpty()) {
+                        reference.labels.add(metaPart.trim());
+                    }
+                }
+            }
+            return reference;
+        }
+    }
+}
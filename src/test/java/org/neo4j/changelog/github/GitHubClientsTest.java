@@ -0,0 +1,47 @@
+package org.neo4j.changelog.github;
+
+import okhttp3.OkHttpClient;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class GitHubClientsTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void clientsSharePoolAndDispatcher() throws Exception {
+        OkHttpClient client = GitHubClients.getClient(1);
+        OkHttpClient perRepo = client.newBuilder().addInterceptor(chain -> chain.proceed(chain.request())).build();
+
+        assertSame(client, GitHubClients.getClient(2));
+        assertSame(client.connectionPool(), perRepo.connectionPool());
+        assertSame(client.dispatcher(), perRepo.dispatcher());
+    }
+
+    @Test
+    public void dispatcherAllowsTheMostAskedFor() throws Exception {
+        int max = GitHubClients.getClient(1).dispatcher().getMaxRequests();
+
+        assertEquals(max + 3, GitHubClients.getClient(max + 3).dispatcher().getMaxRequests());
+        assertEquals(max + 3, GitHubClients.getClient(1).dispatcher().getMaxRequests());
+        assertEquals(max + 3, GitHubClients.getClient(1).dispatcher().getMaxRequestsPerHost());
+    }
+
+    @Test
+    public void oneCachePerDirectory() throws Exception {
+        File dir = temporaryFolder.newFolder("cache");
+
+        RevalidationCache cache = GitHubClients.getCache(dir, 1024);
+
+        assertSame(cache, GitHubClients.getCache(new File(dir, "../cache"), 2048));
+        assertNotSame(cache, GitHubClients.getCache(temporaryFolder.newFolder("other"), 1024));
+    }
+}
@@ -1,18 +1,33 @@
 package org.neo4j.changelog.github;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.changelog.config.GithubConfig;
 
 import javax.annotation.Nonnull;
+import java.io.File;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 
 public class GitHubHelperTest {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void prWithNoFilterIsAlwaysIncluded() throws Exception {
         PullRequest pr = PullRequest();
@@ -38,6 +53,159 @@ public class GitHubHelperTest {
         assertFalse(GitHubHelper.isIncludedInVersion(pr, "4.0"));
     }
 
+    @Test
+    public void prDetailsAreFetchedBoundedAndInNumberOrder() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Pattern prUrl = Pattern.compile("/pulls/([0-9]+)");
+        GitHubMockInterceptor interceptor = new GitHubMockInterceptor() {
+            @Override
+            protected String getBody(String url) throws Exception {
+                Matcher matcher = prUrl.matcher(url);
+                if (!matcher.find()) {
+                    File file = new File(getClass().getResource("github-issues-changelog.json").toURI());
+                    return new String(Files.readAllBytes(file.toPath()));
+                }
+                int number = Integer.parseInt(matcher.group(1));
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                // Responses complete out of order
+                Thread.sleep(number % 7);
+                inFlight.decrementAndGet();
+                return prJson(number);
+            }
+        };
+        GitHubHelper helper = new GitHubHelper(GitHubService.GetService(GitHubService.API_URL, "", interceptor, 2),
+                config());
+
+        List<PullRequest> prs = helper.getChangeLogPullRequests();
+
+        assertFalse(prs.isEmpty());
+        for (int i = 0; i < prs.size(); i++) {
+            assertEquals("sha" + prs.get(i).getNumber(), prs.get(i).getCommit());
+            if (i > 0) {
+                assertTrue(prs.get(i - 1).getNumber() < prs.get(i).getNumber());
+            }
+        }
+        assertTrue(maxInFlight.get() <= 2);
+    }
+
+    @Test
+    public void bulkFetchOnlyRequestsUnlistedPrs() throws Exception {
+        List<String> requested = Collections.synchronizedList(new ArrayList<>());
+        Pattern prUrl = Pattern.compile("/pulls/([0-9]+)");
+        GitHubMockInterceptor interceptor = new GitHubMockInterceptor() {
+            @Override
+            protected String getBody(String url) throws Exception {
+                Matcher matcher = prUrl.matcher(url);
+                if (matcher.find()) {
+                    requested.add(matcher.group(1));
+                    return prJson(Integer.parseInt(matcher.group(1)));
+                } else if (url.contains("/pulls")) {
+                    // Listing which lacks 7179
+                    return "[" + prJson(7089) + ", " + prJson(7009) + ", " + prJson(1) + "]";
+                }
+                File file = new File(getClass().getResource("github-issues-changelog.json").toURI());
+                return new String(Files.readAllBytes(file.toPath()));
+            }
+        };
+        GitHubHelper bulk = new GitHubHelper(GitHubService.GetService(GitHubService.API_URL, "", interceptor, 2),
+                config("bulk_fetch", true));
+        GitHubHelper oneByOne = new GitHubHelper(GitHubService.GetService(GitHubService.API_URL, "", interceptor, 2),
+                config());
+
+        List<PullRequest> prs = bulk.getChangeLogPullRequests();
+        List<String> bulkRequested = new ArrayList<>(requested);
+        List<PullRequest> expected = oneByOne.getChangeLogPullRequests();
+
+        assertEquals(expected.size(), prs.size());
+        for (int i = 0; i < prs.size(); i++) {
+            assertEquals(expected.get(i).getNumber(), prs.get(i).getNumber());
+            assertEquals(expected.get(i).getCommit(), prs.get(i).getCommit());
+        }
+        long listed = expected.stream().filter(pr -> pr.getNumber() == 7089 || pr.getNumber() == 7009).count();
+        assertTrue(listed > 0);
+        assertEquals(expected.size() - listed, bulkRequested.size());
+        assertTrue(bulkRequested.contains("7179"));
+        assertFalse(bulkRequested.contains("7089"));
+    }
+
+    @Test
+    public void storeOnlyFetchesIssuesUpdatedSinceLastRun() throws Exception {
+        List<String> requested = Collections.synchronizedList(new ArrayList<>());
+        List<String> listings = Collections.synchronizedList(new ArrayList<>());
+        Pattern prUrl = Pattern.compile("/pulls/([0-9]+)");
+        GitHubMockInterceptor interceptor = new GitHubMockInterceptor() {
+            @Override
+            protected String getBody(String url) throws Exception {
+                Matcher matcher = prUrl.matcher(url);
+                if (matcher.find()) {
+                    requested.add(matcher.group(1));
+                    return prJson(Integer.parseInt(matcher.group(1)));
+                }
+                listings.add(url);
+                if (url.contains("since=")) {
+                    // 7089 was reopened, and 7200 is new
+                    return "[" + issueJson(7089, "open", "2016-06-01T10:00:00Z") + ", "
+                            + issueJson(7200, "closed", "2016-06-02T10:00:00Z") + "]";
+                }
+                File file = new File(getClass().getResource("github-issues-changelog.json").toURI());
+                return new String(Files.readAllBytes(file.toPath()));
+            }
+        };
+        File storeFile = new File(temporaryFolder.getRoot(), "neo4j-neo4j.json");
+        GitHubService service = GitHubService.GetService(GitHubService.API_URL, "", interceptor, 2);
+
+        GithubConfig config = config("store_dir", temporaryFolder.getRoot().getPath());
+        List<PullRequest> cold = new GitHubHelper(service, config).getChangeLogPullRequests();
+        assertTrue(storeFile.isFile());
+        assertFalse(listings.get(0).contains("since="));
+        assertTrue(requested.contains("7089"));
+
+        requested.clear();
+        listings.clear();
+        List<PullRequest> warm = new GitHubHelper(service, config).getChangeLogPullRequests();
+
+        assertEquals(1, listings.size());
+        assertTrue(listings.get(0), listings.get(0).contains("since=2016-05-25T07"));
+        assertEquals(Collections.singletonList("7200"), requested);
+        assertEquals(cold.size(), warm.size());
+        assertFalse(warm.stream().anyMatch(pr -> pr.getNumber() == 7089));
+        assertEquals(7200, warm.get(warm.size() - 1).getNumber());
+
+        requested.clear();
+        listings.clear();
+        config.setRebuildStore(true);
+        List<PullRequest> rebuilt = new GitHubHelper(service, config).getChangeLogPullRequests();
+
+        assertFalse(listings.get(0).contains("since="));
+        assertEquals(cold.size(), rebuilt.size());
+    }
+
+    /**
+     * @param settings pairs of keys and values in the [github] section
+     */
+    static GithubConfig config(Object... settings) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("user", "neo4j");
+        map.put("repo", "neo4j");
+        map.put("max_requests", 2);
+        for (int i = 0; i < settings.length; i += 2) {
+            map.put((String) settings[i], settings[i + 1]);
+        }
+        return GithubConfig.from(map);
+    }
+
+    private static String issueJson(int number, String state, String updatedAt) {
+        return String.format("{\"number\": %d, \"state\": \"%s\", \"updated_at\": \"%s\", " +
+                "\"labels\": [], \"user\": {\"login\": \"someone\"}, \"pull_request\": {\"url\": \"\"}}",
+                number, state, updatedAt);
+    }
+
+    private static String prJson(int number) {
+        return String.format("{\"number\": %d, \"title\": \"PR %d\", \"body\": \"\", " +
+                "\"head\": {\"sha\": \"sha%d\"}, \"base\": {\"sha\": \"base\"}}", number, number, number);
+    }
+
     private PullRequest FilteredPullRequest(String... versions) {
         return new PullRequest() {
             @Override
@@ -3,6 +3,8 @@ package org.neo4j.changelog.github;
 import okhttp3.*;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
 
 import static junit.framework.TestCase.fail;
 
@@ -18,15 +20,16 @@ public abstract class GitHubMockInterceptor implements Interceptor {
         String url = chain.request().url().toString();
 
         try {
-            return new Response.Builder()
+            Response.Builder builder = new Response.Builder()
                     .code(getCode(url))
                     .message(getMessage(url))
                     .request(original)
                     .protocol(Protocol.HTTP_1_0)
                     .body(ResponseBody.create(MediaType.parse("application/json"),
                             getBody(url).getBytes()))
-                    .addHeader("content-type", "application/json")
-                    .build();
+                    .addHeader("content-type", "application/json");
+            getHeaders(url).forEach(builder::addHeader);
+            return builder.build();
         } catch (Exception e) {
             fail(e.getMessage());
             return null;
@@ -49,6 +52,15 @@ public abstract class GitHubMockInterceptor implements Interceptor {
         return "Success";
     }
 
+    /**
+     *
+     * @return additional http response headers
+     * @param url
+     */
+    protected Map<String, String> getHeaders(String url) {
+        return Collections.emptyMap();
+    }
+
     /**
      *
      * @return http error code (200 for success)
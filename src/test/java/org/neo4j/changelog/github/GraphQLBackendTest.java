@@ -0,0 +1,79 @@
+package org.neo4j.changelog.github;
+
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GraphQLBackendTest {
+
+    @Test
+    public void mergedPullRequestsAreFetchedAPageAtATime() throws Exception {
+        try (GraphQLStubServer server = new GraphQLStubServer("graphql-pullrequests")) {
+            GraphQLBackend backend = new GraphQLBackend(GitHubService.GetService(server.getUrl(), ""),
+                    "neo4j", "neo4j");
+
+            List<PullRequestStore.Record> records = backend.getMergedPullRequests(
+                    Arrays.asList("changelog", "kernel"));
+
+            // 6400 lacks the kernel label
+            assertEquals(Arrays.asList(6293, 6321, 6935, 7000, 7089),
+                    records.stream().map(r -> r.number).collect(Collectors.toList()));
+            assertEquals("0b1b31a3d3d7e1f9b3e1c3e4d6b1a2f3c4d5e6f7", records.get(0).head);
+            assertEquals("alice", records.get(0).author);
+            assertEquals("ghost", records.get(4).author);
+
+            List<JsonObject> queries = server.getQueries();
+            assertEquals(2, queries.size());
+            JsonObject first = queries.get(0).getAsJsonObject("variables");
+            assertEquals("neo4j", first.get("owner").getAsString());
+            // Only one label can be given to GitHub
+            assertEquals(1, first.getAsJsonArray("labels").size());
+            assertEquals("changelog", first.getAsJsonArray("labels").get(0).getAsString());
+            assertFalse(first.has("cursor") && !first.get("cursor").isJsonNull());
+            assertEquals("page2", queries.get(1).getAsJsonObject("variables").get("cursor").getAsString());
+        }
+    }
+
+    @Test
+    public void helperAppliesLabelFiltersToGraphQLResults() throws Exception {
+        Map<String, Object> labelSettings = new HashMap<>();
+        labelSettings.put("required", "changelog,kernel");
+        labelSettings.put("version_prefix", "3.0");
+        try (GraphQLStubServer server = new GraphQLStubServer("graphql-pullrequests")) {
+            GitHubHelper helper = new GitHubHelper(GitHubService.GetService(server.getUrl(), ""),
+                    GitHubHelperTest.config("backend", "graphql", "labels", labelSettings));
+
+            List<PullRequest> prs = helper.getChangeLogPullRequests();
+
+            // 7000 is a question, and 6293 and 6321 are marked for other versions
+            assertEquals(Arrays.asList(6935, 7089),
+                    prs.stream().map(PullRequest::getNumber).collect(Collectors.toList()));
+            assertEquals("5a6b7c8d9e0f1a2b3c4d5e6f7a8b9c0d1e2f3a4b", prs.get(1).getCommit());
+            assertTrue(prs.get(1).getChangeText().contains("Locks are released on shutdown"));
+        }
+    }
+
+    @Test
+    public void missingPagesFail() throws Exception {
+        try (GraphQLStubServer server = new GraphQLStubServer("no-such-fixture")) {
+            GraphQLBackend backend = new GraphQLBackend(GitHubService.GetService(server.getUrl(), ""),
+                    "neo4j", "neo4j");
+
+            backend.getMergedPullRequests(Collections.emptyList());
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Not Found"));
+            return;
+        }
+        throw new AssertionError("Expected the query to fail");
+    }
+}
@@ -0,0 +1,89 @@
+package org.neo4j.changelog.github;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * In-process stand-in for the GitHub GraphQL API, so the GraphQL backend can be tested and measured offline.
+ * Queries are answered with fixtures named {@code <prefix>-<page>.json}. Page 1 is served when there is no cursor, and
+ * page n when the cursor is "page<n>".
+ */
+public class GraphQLStubServer implements AutoCloseable {
+    private final HttpServer server;
+    private final String prefix;
+    private final List<JsonObject> queries = Collections.synchronizedList(new ArrayList<>());
+
+    public GraphQLStubServer(String prefix) throws IOException {
+        this.prefix = prefix;
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/graphql", this::handle);
+        server.start();
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return the bodies of all queries so far
+     */
+    public List<JsonObject> getQueries() {
+        return queries;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        JsonObject query;
+        try (InputStreamReader in = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            query = new JsonParser().parse(in).getAsJsonObject();
+        }
+        queries.add(query);
+
+        JsonElement cursor = query.getAsJsonObject("variables").get("cursor");
+        String page = cursor == null || cursor.isJsonNull() ? "1" : cursor.getAsString().replace("page", "");
+        byte[] body;
+        int code = 200;
+        try (InputStream fixture = getClass().getResourceAsStream(prefix + "-" + page + ".json")) {
+            if (fixture == null) {
+                code = 404;
+                body = "{\"message\": \"Not Found\"}".getBytes(StandardCharsets.UTF_8);
+            } else {
+                body = readAll(fixture);
+            }
+        }
+
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,82 @@
+package org.neo4j.changelog.github;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IssueDecoderTest {
+
+    @Test
+    public void decodesTheSameFieldsAsGson() throws Exception {
+        String json = fixture();
+        List<GitHubService.Issue> expected = new Gson().fromJson(json,
+                new TypeToken<List<GitHubService.Issue>>() {}.getType());
+
+        List<GitHubService.Issue> issues = new IssueDecoder(false, labels -> true).decode(new StringReader(json));
+
+        assertEquals(expected.size(), issues.size());
+        for (int i = 0; i < issues.size(); i++) {
+            GitHubService.Issue e = expected.get(i);
+            GitHubService.Issue issue = issues.get(i);
+            assertEquals(e.number, issue.number);
+            assertEquals(e.state, issue.state);
+            assertEquals(e.updated_at, issue.updated_at);
+            assertEquals(e.user.login, issue.user.login);
+            assertEquals(e.user.html_url, issue.user.html_url);
+            assertEquals(e.pull_request == null, issue.pull_request == null);
+            assertEquals(names(e), names(issue));
+            // Not needed, so never built
+            assertNull(issue.title);
+            assertNull(issue.body);
+        }
+    }
+
+    @Test
+    public void issuesAreFilteredWhileDecoding() throws Exception {
+        IssueDecoder decoder = new IssueDecoder(true, labels -> !labels.contains("2.3"));
+
+        List<GitHubService.Issue> issues = decoder.decode(new StringReader(fixture()));
+
+        List<Integer> numbers = issues.stream().map(i -> i.number).collect(Collectors.toList());
+        // 7009 is not a pull request, and the others are labeled 2.3
+        assertEquals(Arrays.asList(7089, 6935, 6692, 6376, 6353, 6293), numbers);
+    }
+
+    @Test
+    public void fieldsMayComeInAnyOrder() throws Exception {
+        String json = "[{\"body\": \"text\", \"labels\": [{\"name\": \"bug\", \"color\": \"f00\"}], \"number\": 1, " +
+                "\"pull_request\": {\"url\": \"u\"}, \"user\": null, \"milestone\": {\"labels\": []}}, " +
+                "{\"labels\": [{\"name\": \"question\"}], \"pull_request\": {\"url\": \"u\"}, \"number\": 2}, " +
+                "{\"number\": 3, \"pull_request\": {\"url\": null}}]";
+
+        List<GitHubService.Issue> issues = new IssueDecoder(true, labels -> !labels.contains("question"))
+                .decode(new StringReader(json));
+
+        assertEquals(2, issues.size());
+        assertEquals(1, issues.get(0).number);
+        assertEquals(Arrays.asList("bug"), names(issues.get(0)));
+        assertNull(issues.get(0).user);
+        assertEquals(3, issues.get(1).number);
+        assertTrue(issues.get(1).labels.isEmpty());
+    }
+
+    private static List<String> names(GitHubService.Issue issue) {
+        return issue.labels.stream().map(l -> l.name).collect(Collectors.toList());
+    }
+
+    private String fixture() throws Exception {
+        File file = new File(getClass().getResource("github-issues-changelog.json").toURI());
+        return new String(Files.readAllBytes(file.toPath()));
+    }
+}
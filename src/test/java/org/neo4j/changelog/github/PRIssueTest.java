@@ -378,7 +378,7 @@ public class PRIssueTest {
     }
 
     private PRIssue getPrIssue(int number, String title, String body, String html_url, boolean includeAuthor) {
-        return getPrIssue(number, title, body, html_url, Collections.EMPTY_LIST, includeAuthor);
+        return getPrIssue(number, title, body, html_url, Collections.emptyList(), includeAuthor);
     }
 
     private PRIssue getPrIssue(int number, String title, String body, String html_url, List<String> tags, boolean includeAuthor) {
@@ -0,0 +1,120 @@
+package org.neo4j.changelog.github;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class PaginatorTest {
+
+    private static final Pattern PAGE = Pattern.compile("[?&]page=([0-9]+)");
+    private static final String URL = "https://api.github.com/repos/neo4j/neo4j/pulls?state=closed&per_page=100&page=";
+
+    @Test
+    public void parseLinks() throws Exception {
+        Map<String, Integer> links = Paginator.parseLinks("<" + URL + "2>; rel=\"next\", <" + URL + "34>; rel=\"last\"");
+
+        assertEquals(2, links.size());
+        assertEquals(2, (int) links.get("next"));
+        assertEquals(34, (int) links.get("last"));
+        assertTrue(Paginator.parseLinks(null).isEmpty());
+    }
+
+    @Test
+    public void pagesAreFetchedConcurrentlyAndKeptInOrder() throws Exception {
+        PagedInterceptor interceptor = new PagedInterceptor(12, true);
+        Handler handler = new Handler(GitHubService.GetService(GitHubService.API_URL, "", interceptor));
+
+        List<GitHubService.PR> prs = handler.getPullRequests("neo4j", "neo4j");
+
+        assertEquals(expectedNumbers(12), numbers(prs));
+        assertEquals(12, interceptor.requests.get());
+    }
+
+    @Test
+    public void pagesWithoutLastLinkAreFollowed() throws Exception {
+        PagedInterceptor interceptor = new PagedInterceptor(5, false);
+        Handler handler = new Handler(GitHubService.GetService(GitHubService.API_URL, "", interceptor));
+
+        List<GitHubService.PR> prs = handler.getPullRequests("neo4j", "neo4j");
+
+        assertEquals(expectedNumbers(5), numbers(prs));
+        assertEquals(5, interceptor.requests.get());
+    }
+
+    @Test
+    public void singlePage() throws Exception {
+        PagedInterceptor interceptor = new PagedInterceptor(1, true);
+        Handler handler = new Handler(GitHubService.GetService(GitHubService.API_URL, "", interceptor));
+
+        assertEquals(expectedNumbers(1), numbers(handler.getPullRequests("neo4j", "neo4j")));
+    }
+
+    private static List<Integer> numbers(List<GitHubService.PR> prs) {
+        List<Integer> numbers = new ArrayList<>();
+        prs.forEach(pr -> numbers.add(pr.number));
+        return numbers;
+    }
+
+    private static List<Integer> expectedNumbers(int pages) {
+        List<Integer> numbers = new ArrayList<>();
+        for (int page = 1; page <= pages; page++) {
+            numbers.add(10 * page);
+            numbers.add(10 * page + 1);
+        }
+        return numbers;
+    }
+
+    /**
+     * Serves two pull requests per page, numbered after the page.
+     */
+    private static class PagedInterceptor extends GitHubMockInterceptor {
+        private final int pages;
+        private final boolean linkLast;
+        final AtomicInteger requests = new AtomicInteger();
+
+        PagedInterceptor(int pages, boolean linkLast) {
+            this.pages = pages;
+            this.linkLast = linkLast;
+        }
+
+        @Override
+        protected String getBody(String url) throws Exception {
+            requests.incrementAndGet();
+            int page = page(url);
+            // Later pages answer faster, which must not change the order
+            Thread.sleep(5 * (pages - page));
+            return String.format("[{\"number\": %d}, {\"number\": %d}]", 10 * page, 10 * page + 1);
+        }
+
+        @Override
+        protected Map<String, String> getHeaders(String url) {
+            int page = page(url);
+            if (page == pages) {
+                return Collections.emptyMap();
+            }
+            String link = "<" + URL + (page + 1) + ">; rel=\"next\"";
+            if (linkLast) {
+                link += ", <" + URL + pages + ">; rel=\"last\"";
+            }
+            Map<String, String> headers = new HashMap<>();
+            headers.put("Link", link);
+            return headers;
+        }
+
+        private static int page(String url) {
+            Matcher matcher = PAGE.matcher(url);
+            return matcher.find() ? Integer.parseInt(matcher.group(1)) : 1;
+        }
+    }
+}
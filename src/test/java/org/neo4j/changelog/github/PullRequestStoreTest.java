@@ -0,0 +1,87 @@
+package org.neo4j.changelog.github;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PullRequestStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void recordsSurviveSaveAndOpen() throws Exception {
+        Path file = temporaryFolder.getRoot().toPath().resolve("store").resolve("neo4j-neo4j.json");
+        PullRequestStore store = PullRequestStore.open(file, "neo4j", "neo4j", "changelog", false);
+        assertNull(store.getSince());
+
+        store.put(record(7, "bug"));
+        store.put(record(3, "changelog"));
+        store.advanceSince("2016-05-25T07:50:33Z");
+        store.save();
+
+        PullRequestStore reopened = PullRequestStore.open(file, "neo4j", "neo4j", "changelog", false);
+        assertEquals("2016-05-25T07:50:33Z", reopened.getSince());
+        List<PullRequestStore.Record> records = reopened.getRecords();
+        assertEquals(2, records.size());
+        assertEquals(3, records.get(0).number);
+        assertEquals(7, records.get(1).number);
+        assertEquals(Arrays.asList("bug"), records.get(1).labels);
+
+        PRIssue pr = records.get(1).toPullRequest(Collections.singletonMap("bug", "Bug fixes"), false);
+        assertEquals(7, pr.getNumber());
+        assertEquals("sha7", pr.getCommit());
+        assertEquals(Arrays.asList("Bug fixes"), pr.getGitHubTags());
+    }
+
+    @Test
+    public void storeStartsEmptyWhenItDoesNotMatch() throws Exception {
+        Path file = temporaryFolder.getRoot().toPath().resolve("neo4j-neo4j.json");
+        PullRequestStore store = PullRequestStore.open(file, "neo4j", "neo4j", "changelog", false);
+        store.put(record(1, "changelog"));
+        store.advanceSince("2016-05-25T07:50:33Z");
+        store.save();
+
+        assertTrue(PullRequestStore.open(file, "neo4j", "cypher-shell", "changelog", false).getRecords().isEmpty());
+        assertTrue(PullRequestStore.open(file, "neo4j", "neo4j", "changelog,kernel", false).getRecords().isEmpty());
+        assertNull(PullRequestStore.open(file, "neo4j", "neo4j", "changelog", true).getSince());
+
+        Files.write(file, "{ not json".getBytes());
+        assertTrue(PullRequestStore.open(file, "neo4j", "neo4j", "changelog", false).getRecords().isEmpty());
+    }
+
+    @Test
+    public void sinceOnlyMovesForward() throws Exception {
+        PullRequestStore store = PullRequestStore.open(temporaryFolder.getRoot().toPath().resolve("s.json"),
+                "neo4j", "neo4j", "", false);
+
+        store.advanceSince("2016-05-20T13:09:34Z");
+        store.advanceSince("2016-04-22T08:31:41Z");
+        store.advanceSince(null);
+
+        assertEquals("2016-05-20T13:09:34Z", store.getSince());
+    }
+
+    private static PullRequestStore.Record record(int number, String label) {
+        PullRequestStore.Record record = new PullRequestStore.Record();
+        record.number = number;
+        record.title = "PR " + number;
+        record.body = "";
+        record.html_url = "https://github.com/neo4j/neo4j/pull/" + number;
+        record.head = "sha" + number;
+        record.base = "base";
+        record.author = "someone";
+        record.labels = Arrays.asList(label);
+        return record;
+    }
+}
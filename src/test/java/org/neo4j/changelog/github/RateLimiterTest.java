@@ -0,0 +1,142 @@
+package org.neo4j.changelog.github;
+
+import org.junit.Test;
+import retrofit2.Response;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimiterTest {
+    private final List<Long> sleeps = new ArrayList<>();
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private final RateLimiter limiter = new RateLimiter(8, millis -> {
+        sleeps.add(millis);
+        now.addAndGet(millis);
+    }, now::get, new Random(42));
+
+    /**
+     * Answers with the given codes in turn, and 200 after that.
+     */
+    private static class Responses extends GitHubMockInterceptor {
+        final AtomicInteger calls = new AtomicInteger();
+        final List<Integer> codes;
+        final Map<String, String> headers = new HashMap<>();
+
+        Responses(Integer... codes) {
+            this.codes = Arrays.asList(codes);
+        }
+
+        @Override
+        protected int getCode(String url) {
+            int call = calls.getAndIncrement();
+            return call < codes.size() ? codes.get(call) : 200;
+        }
+
+        @Override
+        protected Map<String, String> getHeaders(String url) {
+            return headers;
+        }
+
+        @Override
+        protected String getBody(String url) throws Exception {
+            return "{\"number\": 1, \"title\": \"PR\"}";
+        }
+    }
+
+    @Test
+    public void serverErrorsAreRetriedWithBackoff() throws Exception {
+        Responses responses = new Responses(502, 503);
+
+        Response<GitHubService.PR> response = getPR(responses);
+
+        assertEquals(200, response.code());
+        assertEquals(3, responses.calls.get());
+        assertEquals(2, limiter.getRetryCount());
+        assertEquals(2, sleeps.size());
+        assertTrue(sleeps.toString(), sleeps.get(0) >= 500 && sleeps.get(0) <= 1000);
+        assertTrue(sleeps.toString(), sleeps.get(1) >= 1000 && sleeps.get(1) <= 2000);
+    }
+
+    @Test
+    public void retryAfterIsHonoured() throws Exception {
+        Responses responses = new Responses(429);
+        responses.headers.put("Retry-After", "7");
+
+        assertEquals(200, getPR(responses).code());
+        assertEquals(Arrays.asList(7000L), sleeps);
+    }
+
+    @Test
+    public void usedUpBudgetWaitsForReset() throws Exception {
+        Responses responses = new Responses(403);
+        responses.headers.put("X-RateLimit-Remaining", "0");
+        responses.headers.put("X-RateLimit-Reset", Long.toString(now.get() / 1000 + 30));
+
+        assertEquals(200, getPR(responses).code());
+        assertEquals(Arrays.asList(31_000L), sleeps);
+    }
+
+    @Test
+    public void forbiddenIsNotRetried() throws Exception {
+        Responses responses = new Responses(403, 404);
+
+        assertEquals(403, getPR(responses).code());
+        assertEquals(404, getPR(responses).code());
+        assertEquals(0, limiter.getRetryCount());
+    }
+
+    @Test
+    public void retriesGiveUpEventually() throws Exception {
+        Responses responses = new Responses(500, 500, 500, 500, 500, 500, 500, 500);
+
+        assertEquals(500, getPR(responses).code());
+        assertEquals(RateLimiter.MAX_RETRIES + 1, responses.calls.get());
+        assertEquals(RateLimiter.MAX_RETRIES, limiter.getRetryCount());
+    }
+
+    @Test
+    public void concurrencyShrinksWithBudget() throws Exception {
+        assertEquals(8, limiter.getConcurrency());
+
+        Responses responses = new Responses();
+        responses.headers.put("X-RateLimit-Reset", Long.toString(now.get() / 1000 + 600));
+        responses.headers.put("X-RateLimit-Remaining", "4000");
+        getPR(responses);
+        assertEquals(8, limiter.getConcurrency());
+
+        responses.headers.put("X-RateLimit-Remaining", Integer.toString(3 * RateLimiter.BUDGET_PER_REQUEST));
+        getPR(responses);
+        assertEquals(3, limiter.getConcurrency());
+
+        responses.headers.put("X-RateLimit-Remaining", "1");
+        getPR(responses);
+        assertEquals(1, limiter.getConcurrency());
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    public void budgetIsSharedBetweenClients() throws Exception {
+        Responses used = new Responses();
+        used.headers.put("X-RateLimit-Remaining", "0");
+        used.headers.put("X-RateLimit-Reset", Long.toString(now.get() / 1000 + 10));
+        getPR(used);
+
+        // Another client with the same limiter waits for the reset before asking
+        getPR(new Responses());
+        assertEquals(Arrays.asList(10_000L), sleeps);
+    }
+
+    private Response<GitHubService.PR> getPR(Responses responses) throws Exception {
+        return GitHubService.GetService(GitHubService.API_URL, "", responses, 8, null, limiter)
+                            .getPR("neo4j", "neo4j", 1).execute();
+    }
+}
@@ -0,0 +1,176 @@
+package org.neo4j.changelog.github;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RevalidationCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Serves a body per url, with its version as the ETag.
+     */
+    private static class Server implements Interceptor {
+        final Map<String, Integer> versions = new HashMap<>();
+        final List<String> conditions = new ArrayList<>();
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            String url = request.url().toString();
+            String etag = "\"" + versions.getOrDefault(url, 1) + "\"";
+            conditions.add(request.header("If-None-Match"));
+
+            Response.Builder builder = new Response.Builder()
+                    .request(request)
+                    .protocol(Protocol.HTTP_1_1)
+                    .header("ETag", etag)
+                    .header("X-RateLimit-Remaining", Integer.toString(5000 - conditions.size()));
+            if (etag.equals(request.header("If-None-Match"))) {
+                return builder.code(304).message("Not Modified").body(ResponseBody.create(null, "")).build();
+            }
+            return builder.code(200)
+                          .message("OK")
+                          .header("Content-Type", "application/json")
+                          .header("Link", "<" + url + "?page=2>; rel=\"next\"")
+                          .body(ResponseBody.create(MediaType.parse("application/json"), url + " " + etag))
+                          .build();
+        }
+    }
+
+    @Test
+    public void unchangedResponsesAreServedFromTheCache() throws Exception {
+        Server server = new Server();
+        RevalidationCache cache = new RevalidationCache(temporaryFolder.getRoot(), 1024 * 1024);
+        OkHttpClient client = client(cache, server);
+
+        assertEquals("http://localhost/a \"1\"", get(client, "http://localhost/a").body().string());
+        Response response = get(client, "http://localhost/a");
+
+        assertEquals(200, response.code());
+        assertEquals("http://localhost/a \"1\"", response.body().string());
+        assertEquals("<http://localhost/a?page=2>; rel=\"next\"", response.header("Link"));
+        assertEquals("4998", response.header("X-RateLimit-Remaining"));
+        assertNull(server.conditions.get(0));
+        assertEquals("\"1\"", server.conditions.get(1));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0, cache.getRevalidatedCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void changedResponsesReplaceTheCachedOnes() throws Exception {
+        Server server = new Server();
+        RevalidationCache cache = new RevalidationCache(temporaryFolder.getRoot(), 1024 * 1024);
+        OkHttpClient client = client(cache, server);
+
+        get(client, "http://localhost/a").body().close();
+        server.versions.put("http://localhost/a", 2);
+
+        assertEquals("http://localhost/a \"2\"", get(client, "http://localhost/a").body().string());
+        assertEquals("http://localhost/a \"2\"", get(client, "http://localhost/a").body().string());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getRevalidatedCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void leastRecentlyUsedResponsesAreEvicted() throws Exception {
+        Server server = new Server();
+        File dir = temporaryFolder.getRoot();
+        OkHttpClient client = client(new RevalidationCache(dir, 1024 * 1024), server);
+        get(client, "http://localhost/a").body().close();
+        long entrySize = dir.listFiles()[0].length();
+
+        // Room for two responses
+        RevalidationCache cache = new RevalidationCache(dir, entrySize * 2 + 1);
+        client = client(cache, server);
+        get(client, "http://localhost/b").body().close();
+        get(client, "http://localhost/a").body().close();
+        get(client, "http://localhost/c").body().close();
+        assertEquals(2, dir.listFiles().length);
+
+        server.conditions.clear();
+        get(client, "http://localhost/a").body().close();
+        get(client, "http://localhost/b").body().close();
+
+        assertEquals("\"1\"", server.conditions.get(0));
+        assertNull(server.conditions.get(1));
+    }
+
+    @Test
+    public void changedResponsesTooLargeToCacheDropTheCachedOnes() throws Exception {
+        Server server = new Server();
+        File dir = temporaryFolder.getRoot();
+        get(client(new RevalidationCache(dir, 1024 * 1024), server), "http://localhost/a").body().close();
+        long entrySize = dir.listFiles()[0].length();
+
+        // Room for the first response only, the changed one has a longer ETag
+        OkHttpClient client = client(new RevalidationCache(dir, entrySize), server);
+        server.versions.put("http://localhost/a", 10);
+        assertEquals("http://localhost/a \"10\"", get(client, "http://localhost/a").body().string());
+        assertEquals(0, dir.listFiles().length);
+
+        server.conditions.clear();
+        assertEquals("http://localhost/a \"10\"", get(client, "http://localhost/a").body().string());
+        assertNull(server.conditions.get(0));
+    }
+
+    @Test
+    public void cacheIsKeptBetweenRuns() throws Exception {
+        Server server = new Server();
+        get(client(new RevalidationCache(temporaryFolder.getRoot(), 1024 * 1024), server), "http://localhost/a")
+                .body().close();
+
+        RevalidationCache cache = new RevalidationCache(temporaryFolder.getRoot(), 1024 * 1024);
+        get(client(cache, server), "http://localhost/a").body().close();
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    public void bodiesAreCachedAsTheyAreRead() throws Exception {
+        Server server = new Server();
+        File dir = temporaryFolder.getRoot();
+        RevalidationCache cache = new RevalidationCache(dir, 1024 * 1024);
+        OkHttpClient client = client(cache, server);
+
+        Response response = get(client, "http://localhost/a");
+        assertEquals('h', response.body().byteStream().read());
+        // Nothing is cached until the body has been read
+        assertEquals(0, dir.listFiles((d, name) -> name.endsWith(".entry")).length);
+        response.body().close();
+
+        assertEquals(1, dir.listFiles().length);
+        assertEquals("http://localhost/a \"1\"", get(client, "http://localhost/a").body().string());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    private static OkHttpClient client(RevalidationCache cache, Server server) {
+        return new OkHttpClient.Builder().addInterceptor(cache).addInterceptor(server).build();
+    }
+
+    private static Response get(OkHttpClient client, String url) throws IOException {
+        return client.newCall(new Request.Builder().url(url).build()).execute();
+    }
+}
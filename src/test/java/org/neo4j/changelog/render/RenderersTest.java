@@ -0,0 +1,85 @@
+package org.neo4j.changelog.render;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+import org.neo4j.changelog.ChangeRecord;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class RenderersTest {
+    private static final ChangeRecord CHANGE = new ChangeRecord(6935, "Fixed <b>locks</b> & \"more\" " +
+            "[\\#6935](https://github.com/neo4j/neo4j/pull/6935) ([alice](https://github.com/alice))", "3.0",
+            Arrays.asList("kernel", "bug"));
+
+    @Test
+    public void asciiDocHasAsciiDocLinks() throws Exception {
+        assertEquals("\n== 3.0\n\n\n=== Kernel\n\n" +
+                        "* Fixed <b>locks</b> & \"more\" https://github.com/neo4j/neo4j/pull/6935[#6935] " +
+                        "(https://github.com/alice[alice])\n",
+                render(Renderers.ASCIIDOC));
+    }
+
+    @Test
+    public void htmlIsEscaped() throws Exception {
+        assertEquals("<h2>3.0</h2>\n<h3>Kernel</h3>\n<ul>\n" +
+                        "<li>Fixed &lt;b&gt;locks&lt;/b&gt; &amp; &quot;more&quot; " +
+                        "<a href=\"https://github.com/neo4j/neo4j/pull/6935\">#6935</a> " +
+                        "(<a href=\"https://github.com/alice\">alice</a>)</li>\n</ul>\n",
+                render(Renderers.HTML));
+    }
+
+    @Test
+    public void htmlOnlyLinksToWebPages() throws Exception {
+        assertEquals("<li>Fixed [x](javascript:alert(1)) [y](data:text/html,&lt;script&gt;) " +
+                        "<a href=\"HTTPS://example.com/?a=&quot;b&quot;\">z</a></li>\n",
+                renderChange(Renderers.HTML, "Fixed [x](javascript:alert(1)) [y](data:text/html,<script>) " +
+                        "[z](HTTPS://example.com/?a=\"b\")"));
+    }
+
+    @Test
+    public void asciiDocMarkupInTitlesIsEscaped() throws Exception {
+        assertEquals("* {plus}{plus}{plus}<script>{plus}{plus}{plus} \\pass:[<b>] \\{docdir} ${empty}$x${empty}$ " +
+                        "\\link:javascript:alert(1)[x] [y](javascript:alert(1)) " +
+                        "https://example.com/%5Ba%5D?q=%2B[{plus}{plus}{plus}\\]]\n",
+                renderChange(Renderers.ASCIIDOC, "+++<script>+++ pass:[<b>] {docdir} $$x$$ " +
+                        "link:javascript:alert(1)[x] [y](javascript:alert(1)) " +
+                        "[+++\\]](https://example.com/[a]?q=+)"));
+    }
+
+    @Test
+    public void jsonKeepsTheMarkdown() throws Exception {
+        JsonObject json = new JsonParser().parse(render(Renderers.JSON)).getAsJsonObject();
+
+        JsonObject version = json.getAsJsonArray("versions").get(0).getAsJsonObject();
+        assertEquals("3.0", version.get("version").getAsString());
+        JsonObject category = version.getAsJsonArray("categories").get(0).getAsJsonObject();
+        assertEquals("Kernel", category.get("category").getAsString());
+        JsonObject change = category.getAsJsonArray("changes").get(0).getAsJsonObject();
+        assertEquals(CHANGE.toString(), change.get("text").getAsString());
+        assertEquals(6935, change.get("number").getAsInt());
+        assertEquals(2, change.getAsJsonArray("labels").size());
+    }
+
+    private static String renderChange(String format, String text) throws Exception {
+        StringWriter sw = new StringWriter();
+        Renderers.create(format, sw).change(new ChangeRecord(1, text, "3.0", Arrays.asList("kernel")));
+        return sw.toString();
+    }
+
+    private static String render(String format) throws Exception {
+        StringWriter sw = new StringWriter();
+        Renderer renderer = Renderers.create(format, sw);
+        renderer.beginChangeLog();
+        renderer.beginVersion("3.0");
+        renderer.beginCategory("Kernel");
+        renderer.change(CHANGE);
+        renderer.endCategory();
+        renderer.endVersion();
+        renderer.endChangeLog();
+        return sw.toString();
+    }
+}